@@ -0,0 +1,28 @@
+package com.video.transcoding.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "video.admission")
+public class AdmissionConfig {
+    private boolean enabled = true;
+    private long checkIntervalMs = 2000;
+    // Stop taking jobs when temp-dir has less free space than this: one max-size source plus its output
+    private long minFreeDiskBytes = 3L * 1024 * 1024 * 1024;
+    // Size of the volume behind temp-dir (e.g. the emptyDir sizeLimit), 0 = trust the filesystem's free space.
+    // A sizeLimit is enforced by eviction, not by the filesystem, so free space has to come from our own usage
+    private long tempDirCapacityBytes;
+    // How long a walk of temp-dir measuring its usage is reused; the walk stats every file, so not on every check
+    private long usageCacheMs = 15000;
+    // Running plus queued encodes on this node; 0 = twice the CPU budget
+    private int maxPendingEncodes;
+    // Fraction of the max heap in use
+    private double maxHeapUsage = 0.9;
+    // Resume only once every signal is this far back inside its limit, so the node doesn't flap
+    private double resumeMargin = 0.1;
+    // A node paused this long leaves the consumer group so its partitions move to healthy consumers
+    private long stopAfterMs = 60000;
+}
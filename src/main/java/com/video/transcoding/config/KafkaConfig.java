@@ -0,0 +1,71 @@
+package com.video.transcoding.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.ContainerProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+public class KafkaConfig {
+
+    @Bean
+    public NewTopic interactiveTranscodingTopic(QueueConfig queueConfig) {
+        return TopicBuilder.name(queueConfig.getInteractiveTopic())
+            .partitions(queueConfig.getPartitions())
+            .build();
+    }
+
+    @Bean
+    public NewTopic bulkTranscodingTopic(QueueConfig queueConfig) {
+        return TopicBuilder.name(queueConfig.getBulkTopic())
+            .partitions(queueConfig.getPartitions())
+            .build();
+    }
+
+    // One topic per retry delay, so every record in a topic waits the same time and none holds back a record due sooner
+    @Bean
+    public KafkaAdmin.NewTopics retryTranscodingTopics(QueueConfig queueConfig) {
+        List<NewTopic> topics = new ArrayList<>();
+        for (String topic : queueConfig.retryTopics()) {
+            topics.add(TopicBuilder.name(topic).partitions(queueConfig.getPartitions()).build());
+        }
+        topics.add(TopicBuilder.name(queueConfig.getDeadLetterTopic()).partitions(queueConfig.getPartitions()).build());
+        return new KafkaAdmin.NewTopics(topics.toArray(new NewTopic[0]));
+    }
+
+    // Bulk records are acknowledged by hand so one over its tenant's share can wait on its paused partition
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> bulkListenerContainerFactory(
+            KafkaProperties kafkaProperties, QueueConfig queueConfig) {
+        return manualAckFactory(kafkaProperties, queueConfig.getBulkConcurrency());
+    }
+
+    // Retry records that aren't due yet pause only their own partition until they are
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> retryListenerContainerFactory(
+            KafkaProperties kafkaProperties, QueueConfig queueConfig) {
+        return manualAckFactory(kafkaProperties, queueConfig.getRetryConcurrency());
+    }
+
+    private ConcurrentKafkaListenerContainerFactory<Object, Object> manualAckFactory(KafkaProperties kafkaProperties, int concurrency) {
+        Map<String, Object> properties = kafkaProperties.buildConsumerProperties();
+        // One job per poll: a deferred record never holds other tenants' records behind it in the same batch
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 1);
+
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(properties));
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        return factory;
+    }
+}
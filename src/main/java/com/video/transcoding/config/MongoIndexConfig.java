@@ -0,0 +1,112 @@
+package com.video.transcoding.config;
+
+import com.video.transcoding.model.ReplicationSession;
+import com.video.transcoding.model.ReplicationTask;
+import com.video.transcoding.model.ShareBatchSync;
+import com.video.transcoding.model.ShareSync;
+import com.video.transcoding.model.Video;
+import com.video.transcoding.model.VideoReplica;
+import com.video.transcoding.model.VideoShare;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class MongoIndexConfig {
+    private final MongoTemplate mongoTemplate;
+
+    // ensureIndex is a no-op for an index that already exists, so every node can run this on startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexOperations shares = mongoTemplate.indexOps(VideoShare.class);
+        // "Shared with me" and per-video listings: equality fields first, then the keyset sort (createdAt, _id)
+        shares.ensureIndex(new Index()
+            .on("sharedWithUsername", Sort.Direction.ASC)
+            .on("isActive", Sort.Direction.ASC)
+            .on("createdAt", Sort.Direction.DESC)
+            .on("_id", Sort.Direction.DESC)
+            .named("shared_with_active_created"));
+        shares.ensureIndex(new Index()
+            .on("videoId", Sort.Direction.ASC)
+            .on("isActive", Sort.Direction.ASC)
+            .on("createdAt", Sort.Direction.DESC)
+            .on("_id", Sort.Direction.DESC)
+            .named("video_active_created"));
+        // existsByVideoIdAndSharedWithUsernameAndIsActiveTrue
+        shares.ensureIndex(new Index()
+            .on("videoId", Sort.Direction.ASC)
+            .on("sharedWithUsername", Sort.Direction.ASC)
+            .on("isActive", Sort.Direction.ASC)
+            .named("video_shared_with_active"));
+        // At most one active share per (video, recipient), however many requests race to create it
+        try {
+            shares.ensureIndex(new Index()
+                .on("videoId", Sort.Direction.ASC)
+                .on("sharedWithUsername", Sort.Direction.ASC)
+                .unique()
+                .partial(PartialIndexFilter.of(Criteria.where("isActive").is(true)))
+                .named("video_shared_with_unique_active"));
+        } catch (Exception e) {
+            // Duplicates written before the index existed have to be deactivated by hand first
+            log.error("Could not create unique index on active shares", e);
+        }
+        shares.ensureIndex(new Index()
+            .on("sharedByUserId", Sort.Direction.ASC)
+            .on("createdAt", Sort.Direction.DESC)
+            .named("shared_by_created"));
+
+        IndexOperations syncs = mongoTemplate.indexOps(ShareSync.class);
+        // Pending syncs for this organization, drained in _id order
+        syncs.ensureIndex(new Index()
+            .on("targetOrganization", Sort.Direction.ASC)
+            .on("isProcessed", Sort.Direction.ASC)
+            .on("_id", Sort.Direction.ASC)
+            .named("target_pending"));
+        syncs.ensureIndex(new Index()
+            .on("sourceOrganization", Sort.Direction.ASC)
+            .on("status", Sort.Direction.ASC)
+            .named("source_status"));
+
+        // Due bulk share batches, longest-waiting first
+        mongoTemplate.indexOps(ShareBatchSync.class).ensureIndex(new Index()
+            .on("status", Sort.Direction.ASC)
+            .on("notBefore", Sort.Direction.ASC)
+            .named("batch_sync_due"));
+
+        // A reconnecting sender finds its session by (objectName, totalSize); unique so two senders can't open twins
+        mongoTemplate.indexOps(ReplicationSession.class).ensureIndex(new Index()
+            .on("objectName", Sort.Direction.ASC)
+            .on("totalSize", Sort.Direction.ASC)
+            .unique()
+            .named("replication_object"));
+
+        mongoTemplate.indexOps(VideoReplica.class).ensureIndex(new Index()
+            .on("videoId", Sort.Direction.ASC)
+            .named("replica_video"));
+
+        // Dispatch: next queued task per organization in (rank, enqueuedAt) order, and running-slot counts
+        mongoTemplate.indexOps(ReplicationTask.class).ensureIndex(new Index()
+            .on("targetOrganization", Sort.Direction.ASC)
+            .on("status", Sort.Direction.ASC)
+            .on("rank", Sort.Direction.ASC)
+            .on("enqueuedAt", Sort.Direction.ASC)
+            .named("task_dispatch"));
+
+        // Reference counts of rendition sets are reconciled against the videos pointing at them
+        mongoTemplate.indexOps(Video.class).ensureIndex(new Index()
+            .on("renditionSetId", Sort.Direction.ASC)
+            .named("video_rendition_set"));
+
+        log.info("MongoDB indexes ensured");
+    }
+}
@@ -0,0 +1,54 @@
+package com.video.transcoding.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "video.queue")
+public class QueueConfig {
+    // Short clips and one-off uploads; consumed with max-concurrent-jobs listener threads
+    private String interactiveTopic = "video-transcoding";
+    // Large sources and bursts; consumed by its own listener threads so it never delays the interactive lane
+    private String bulkTopic = "video-transcoding-bulk";
+    // Records are keyed by tenant, so more partitions spread tenants across consumers
+    private int partitions = 12;
+    private int bulkConcurrency = 1;
+    // Sources at least this large go to the bulk lane
+    private long bulkMinSize = 1024L * 1024 * 1024;
+    // A tenant with this many interactive jobs already waiting has further uploads sent to the bulk lane
+    private int interactiveBurst = 3;
+    // Bulk jobs a tenant may run at once across the fleet, multiplied by its weight
+    private int bulkJobsPerWeight = 1;
+    // userId -> account whose share the user's jobs count against; users not listed share their organization's
+    private Map<String, String> accounts = new HashMap<>();
+    // tenantId (account or organization) -> weight; tenants not listed have weight 1
+    private Map<String, Integer> weights = new HashMap<>();
+    // A queued interactive job not picked up within this long no longer counts towards interactive-burst
+    private long queuedInteractiveExpiryMs = 30 * 60 * 1000;
+    // How long a bulk record over its tenant's share waits before it is redelivered
+    private long deferMillis = 5000;
+    // Delay before each retry of a failed job or segment; each delay has its own topic, <interactive-topic>-retry-<n>
+    private List<Long> retryDelaysMs = new ArrayList<>(List.of(30_000L, 120_000L, 600_000L));
+    private int retryConcurrency = 1;
+    // Jobs and segments that failed every retry are parked here for inspection and replay
+    private String deadLetterTopic = "video-transcoding-dlt";
+
+    public String retryTopic(int attempt) {
+        return interactiveTopic + "-retry-" + attempt;
+    }
+
+    public String[] retryTopics() {
+        String[] topics = new String[retryDelaysMs.size()];
+        for (int i = 0; i < topics.length; i++) {
+            topics[i] = retryTopic(i);
+        }
+        return topics;
+    }
+}
@@ -0,0 +1,69 @@
+package com.video.transcoding.config;
+
+import com.video.transcoding.model.Organization;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "video.replication")
+public class ReplicationConfig {
+    // Organization -> base URL of its /api/replication endpoint
+    private Map<String, String> endpoints = new HashMap<>();
+    // Organizations allowed to replicate into this one; anything else is refused
+    private List<String> peers = new ArrayList<>();
+    // Callers must connect from the address registered for the organization they claim to be
+    private boolean verifyPeerAddress = true;
+    // Bytes per ranged read and per part on the target; every part but the last must be at least 5 MiB for compose
+    private long partSize = 16 * 1024 * 1024;
+    // Parts in flight across all transfers from this node
+    private int parallelParts = 4;
+    // Objects replicated at once; their parts share the parallel-parts pool
+    private int concurrentTransfers = 2;
+    // Floor of the per-part timeout, which otherwise follows from part size and the link budget; also bounds control calls
+    private int partTimeoutSeconds = 60;
+    // Unfinished sessions on the receiving side, and their part objects, are dropped after this
+    private int sessionTtlHours = 48;
+    // A TRANSFERRING replica untouched for this long is treated as abandoned and can be claimed again
+    private int claimStaleMinutes = 60;
+    // Videos whose replication is orchestrated at once
+    private int concurrentVideos = 2;
+    // Queued transfers: a failed one is re-queued with doubling delay until it has been tried this often
+    private int maxAttempts = 5;
+    private int retryDelaySeconds = 60;
+    // Organization -> budget of the link to it; organizations not listed get defaultLink
+    private Map<String, Link> links = new HashMap<>();
+    private Link defaultLink = new Link();
+
+    @Data
+    public static class Link {
+        // Bytes per second this node may send to the organization, 0 = unlimited
+        private long bytesPerSecond = 0;
+        // Budget inside the off-peak window, 0 = same as bytesPerSecond
+        private long offPeakBytesPerSecond = 0;
+        // Local time, e.g. "22:00-06:00"; empty = no off-peak window
+        private String offPeakWindow;
+        // Background transfers wait for the off-peak window; viewer-waiting transfers always run
+        private boolean backgroundOffPeakOnly = false;
+        // Videos transferred to the organization at once across the fleet; one slot stays free for viewer-waiting transfers
+        private int maxTransfers = 2;
+    }
+
+    public String getEndpoint(Organization org) {
+        return endpoints.getOrDefault(org.name(), null);
+    }
+
+    public boolean isPeer(Organization org) {
+        return peers.contains(org.name());
+    }
+
+    public Link linkFor(Organization org) {
+        return links.getOrDefault(org.name(), defaultLink);
+    }
+}
@@ -0,0 +1,31 @@
+package com.video.transcoding.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.retry.support.RetryTemplate;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "spring.retry")
+public class RetryConfig {
+    private int maxAttempts = 3;
+    private Backoff backoff = new Backoff();
+
+    @Data
+    public static class Backoff {
+        private long initialInterval = 2000;
+        private double multiplier = 2;
+        private long maxInterval = 10000;
+    }
+
+    @Bean
+    public RetryTemplate retryTemplate() {
+        return RetryTemplate.builder()
+                .maxAttempts(maxAttempts)
+                .exponentialBackoff(backoff.getInitialInterval(), backoff.getMultiplier(), backoff.getMaxInterval())
+                .retryOn(Exception.class)
+                .build();
+    }
+}
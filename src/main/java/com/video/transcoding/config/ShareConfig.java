@@ -14,7 +14,27 @@ import java.util.Map;
 @Configuration
 @ConfigurationProperties(prefix = "video.share")
 public class ShareConfig {
+    // The organization this deployment belongs to
+    private Organization currentOrganization = Organization.UNIT_1;
     private Map<String, String> endpoints = new HashMap<>();
+    private Sync sync = new Sync();
+    // Upper bound on videos x recipients in one bulk share request
+    private int bulkMaxShares = 5000;
+
+    @Data
+    public static class Sync {
+        // Watch share_syncs with a change stream (needs a replica set); the periodic scan still runs as a safety net
+        private boolean changeStream = true;
+        // Pending syncs read and written per bulk round trip
+        private int batchSize = 500;
+        private long safetyScanMs = 60000;
+        // A sync whose share can't be written is retried on later drains, then marked FAILED and left alone
+        private int maxAttempts = 5;
+        // Bulk share batches the target did not accept are resent, doubling this delay each time
+        private long batchRetryDelaySeconds = 30;
+        private int batchMaxAttempts = 10;
+        private long batchRetryScanMs = 30000;
+    }
 
     @Bean
     public WebClient webClient() {
@@ -22,6 +42,11 @@ public class ShareConfig {
                 .build();
     }
 
+    @Bean
+    public Organization currentOrg() {
+        return currentOrganization;
+    }
+
     public String getEndpoint(Organization org) {
         return endpoints.getOrDefault(org.name(), null);
     }
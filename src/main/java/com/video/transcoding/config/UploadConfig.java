@@ -0,0 +1,31 @@
+package com.video.transcoding.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "video.upload")
+public class UploadConfig {
+    private long maxFileSize = 2L * 1024 * 1024 * 1024;
+    private Chunked chunked = new Chunked();
+    private Direct direct = new Direct();
+
+    @Data
+    public static class Chunked {
+        private long defaultChunkSize = 8 * 1024 * 1024;
+        // Never below 5 MiB: chunks are joined with MinIO compose
+        private long minChunkSize = 5 * 1024 * 1024;
+        private long maxChunkSize = 64 * 1024 * 1024;
+        // Unfinished sessions and their partial files are dropped after this
+        private int sessionTtlHours = 24;
+    }
+
+    @Data
+    public static class Direct {
+        // Lifetime of the presigned PUT URL handed to the client
+        private int urlExpiryMinutes = 60;
+        private int sessionTtlHours = 24;
+    }
+}
@@ -0,0 +1,31 @@
+package com.video.transcoding.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "video.cache")
+public class VideoCacheConfig {
+    // videoId -> quality name -> object name
+    private Limits metadata = new Limits(10000, 16L * 1024 * 1024, 10);
+    // (videoId, quality) -> presigned URL; the TTL is capped at half the 7-day signature lifetime
+    private Limits signedUrls = new Limits(50000, 64L * 1024 * 1024, 60);
+
+    @Data
+    public static class Limits {
+        private int maxEntries;
+        private long maxBytes;
+        private int ttlMinutes;
+
+        public Limits() {
+        }
+
+        public Limits(int maxEntries, long maxBytes, int ttlMinutes) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+            this.ttlMinutes = ttlMinutes;
+        }
+    }
+}
@@ -12,6 +12,38 @@ import java.util.List;
 public class VideoProcessingConfig {
     private String tempDir;
     private List<Quality> qualities;
+    private EncodeMode encodeMode = EncodeMode.PER_RENDITION;
+    private OutputMode outputMode = OutputMode.FILE;
+    private Packaging packaging = Packaging.PROGRESSIVE;
+    private Hls hls = new Hls();
+    private Audio audio = new Audio();
+    private Scheduler scheduler = new Scheduler();
+    private Upload upload = new Upload();
+    private Distributed distributed = new Distributed();
+    private Progress progress = new Progress();
+    private Ladder ladder = new Ladder();
+    private Checkpoint checkpoint = new Checkpoint();
+
+    public enum EncodeMode {
+        // One FFmpeg process (and one decode) per rendition
+        PER_RENDITION,
+        // One FFmpeg process decodes once and feeds a split/scale graph for every rendition
+        SINGLE_PASS
+    }
+
+    public enum OutputMode {
+        // Encode to temp-dir, then upload the file
+        FILE,
+        // FFmpeg writes fragmented MP4 to stdout, streamed straight into a MinIO multipart upload
+        STREAM
+    }
+
+    public enum Packaging {
+        // One standalone MP4 per rendition
+        PROGRESSIVE,
+        // Keyframe-aligned fMP4/CMAF segments, a media playlist per rendition and a master playlist
+        HLS
+    }
 
     @Data
     public static class Quality {
@@ -20,5 +52,85 @@ public class VideoProcessingConfig {
         private String bitrate;
         private String preset;
         private int crf;
+        // x264 -threads for this rendition; 0 sizes it from the output height
+        private int threads;
+
+        // "5000k" -> 5000000, "1.5M" -> 1500000
+        public long bitrateBps() {
+            String value = bitrate.trim().toLowerCase();
+            long multiplier = 1;
+            if (value.endsWith("k")) {
+                multiplier = 1_000;
+            } else if (value.endsWith("m")) {
+                multiplier = 1_000_000;
+            }
+            if (multiplier > 1) {
+                value = value.substring(0, value.length() - 1);
+            }
+            return (long) (Double.parseDouble(value) * multiplier);
+        }
+    }
+
+    @Data
+    public static class Scheduler {
+        // CPU slots shared by all concurrent encodes on this node; 0 uses every available core
+        private int cpuBudget;
+        // Kafka listener threads, i.e. jobs accepted at the same time
+        private int maxConcurrentJobs = 2;
+    }
+
+    @Data
+    public static class Upload {
+        // Upload finished renditions on the I/O pool while the next encode runs
+        private boolean pipelined;
+        private int threads = 4;
+        // Multipart part size for STREAM output; MinIO requires at least 5MB
+        private long partSize = 16 * 1024 * 1024;
+    }
+
+    @Data
+    public static class Distributed {
+        // Split large sources into keyframe-aligned segments encoded by the whole consumer fleet
+        private boolean enabled;
+        private int segmentDuration = 60;
+        private long minSourceSize = 512L * 1024 * 1024;
+    }
+
+    @Data
+    public static class Hls {
+        // Target segment length in seconds; keyframes are forced on this grid in every rendition
+        private int segmentDuration = 6;
+    }
+
+    @Data
+    public static class Audio {
+        // AAC track of every encoded rendition; also counted into remux checks and HLS BANDWIDTH
+        private int bitrate = 192000;
+        private int sampleRate = 48000;
+        private int channels = 2;
+    }
+
+    @Data
+    public static class Ladder {
+        // Drop renditions taller than the source instead of upscaling it
+        private boolean skipUpscale = true;
+        // Tallest rendition produced for any source; 0 = no cap
+        private int maxHeight;
+        // Stream-copy a rendition the source already matches (H.264/AAC, same height) instead of encoding it
+        private boolean remux = true;
+        // How far the source bitrate may exceed the rendition's target and still be remuxed
+        private double remuxBitrateTolerance = 0.25;
+    }
+
+    @Data
+    public static class Checkpoint {
+        // Copy locally uploaded sources to MinIO so a job interrupted on one node can resume on another
+        private boolean persistSource = true;
+    }
+
+    @Data
+    public static class Progress {
+        // WebSocket progress is coalesced per video and flushed at most this often
+        private long intervalMs = 500;
     }
-} 
\ No newline at end of file
+}
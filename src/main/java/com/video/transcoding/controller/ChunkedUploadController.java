@@ -0,0 +1,90 @@
+package com.video.transcoding.controller;
+
+import com.video.transcoding.dto.CreateUploadSessionRequest;
+import com.video.transcoding.dto.UploadSessionStatus;
+import com.video.transcoding.service.ChunkedUploadService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.HashMap;
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/uploads")
+@RequiredArgsConstructor
+public class ChunkedUploadController {
+    private final ChunkedUploadService chunkedUploadService;
+
+    @PostMapping
+    public ResponseEntity<?> createSession(
+            @RequestBody CreateUploadSessionRequest request,
+            @AuthenticationPrincipal String userId) {
+        try {
+            return ResponseEntity.ok(chunkedUploadService.createSession(request, userId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e));
+        } catch (Exception e) {
+            log.error("Error creating upload session", e);
+            return ResponseEntity.internalServerError().body(error(e));
+        }
+    }
+
+    @PutMapping("/{sessionId}/chunks")
+    public ResponseEntity<Map<String, String>> uploadChunk(
+            @PathVariable String sessionId,
+            @RequestParam long offset,
+            HttpServletRequest servletRequest,
+            @AuthenticationPrincipal String userId) {
+        try {
+            // Raw application/octet-stream body, streamed into its own MinIO object
+            chunkedUploadService.writeChunk(sessionId, userId, offset,
+                servletRequest.getContentLengthLong(), servletRequest.getInputStream());
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(error(e));
+        } catch (Exception e) {
+            log.error("Error writing chunk at offset {} of upload session: {}", offset, sessionId, e);
+            return ResponseEntity.internalServerError().body(error(e));
+        }
+    }
+
+    @GetMapping("/{sessionId}")
+    public ResponseEntity<UploadSessionStatus> getStatus(
+            @PathVariable String sessionId,
+            @AuthenticationPrincipal String userId) {
+        try {
+            return ResponseEntity.ok(chunkedUploadService.getStatus(sessionId, userId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PostMapping("/{sessionId}/complete")
+    public ResponseEntity<Map<String, String>> complete(
+            @PathVariable String sessionId,
+            @AuthenticationPrincipal String userId) {
+        try {
+            String videoId = chunkedUploadService.complete(sessionId, userId);
+            Map<String, String> response = new HashMap<>();
+            response.put("videoId", videoId);
+            response.put("message", "Video upload completed, processing in background");
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(error(e));
+        } catch (Exception e) {
+            log.error("Error completing upload session: {}", sessionId, e);
+            return ResponseEntity.internalServerError().body(error(e));
+        }
+    }
+
+    private Map<String, String> error(Exception e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        return error;
+    }
+}
@@ -0,0 +1,58 @@
+package com.video.transcoding.controller;
+
+import com.video.transcoding.dto.CreateUploadSessionRequest;
+import com.video.transcoding.service.DirectUploadService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/uploads/direct")
+@RequiredArgsConstructor
+public class DirectUploadController {
+    private final DirectUploadService directUploadService;
+
+    @PostMapping
+    public ResponseEntity<?> createSession(
+            @RequestBody CreateUploadSessionRequest request,
+            @AuthenticationPrincipal String userId) {
+        try {
+            return ResponseEntity.ok(directUploadService.createSession(request, userId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e));
+        } catch (Exception e) {
+            log.error("Error creating direct upload session", e);
+            return ResponseEntity.internalServerError().body(error(e));
+        }
+    }
+
+    @PostMapping("/{sessionId}/complete")
+    public ResponseEntity<Map<String, String>> complete(
+            @PathVariable String sessionId,
+            @AuthenticationPrincipal String userId) {
+        try {
+            String videoId = directUploadService.complete(sessionId, userId);
+            Map<String, String> response = new HashMap<>();
+            response.put("videoId", videoId);
+            response.put("message", "Video upload completed, processing in background");
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(error(e));
+        } catch (Exception e) {
+            log.error("Error completing direct upload session: {}", sessionId, e);
+            return ResponseEntity.internalServerError().body(error(e));
+        }
+    }
+
+    private Map<String, String> error(Exception e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        return error;
+    }
+}
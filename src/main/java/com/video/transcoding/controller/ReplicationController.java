@@ -0,0 +1,129 @@
+package com.video.transcoding.controller;
+
+import com.video.transcoding.dto.OpenReplicationRequest;
+import com.video.transcoding.dto.ReplicationManifest;
+import com.video.transcoding.dto.ReplicationQueueStatus;
+import com.video.transcoding.dto.ReplicationSessionStatus;
+import com.video.transcoding.model.Organization;
+import com.video.transcoding.service.ReplicationQueueService;
+import com.video.transcoding.service.ReplicationReceiverService;
+import com.video.transcoding.service.ReplicationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.HashMap;
+import java.util.Map;
+
+// Receiving end of replication from other organizations
+@Slf4j
+@RestController
+@RequestMapping("/api/replication")
+@RequiredArgsConstructor
+public class ReplicationController {
+    private final ReplicationReceiverService replicationReceiverService;
+    private final ReplicationQueueService replicationQueueService;
+
+    @PostMapping("/sessions")
+    public ResponseEntity<?> openSession(@RequestBody OpenReplicationRequest request, HttpServletRequest servletRequest) {
+        try {
+            return ResponseEntity.ok(replicationReceiverService.open(request, servletRequest.getRemoteAddr()));
+        } catch (ReplicationReceiverService.PeerNotAllowedException e) {
+            return forbidden(e);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(error(e));
+        } catch (Exception e) {
+            log.error("Error opening replication session for {}", request.getObjectName(), e);
+            return ResponseEntity.internalServerError().body(error(e));
+        }
+    }
+
+    @PostMapping("/manifest/diff")
+    public ResponseEntity<?> diffManifest(@RequestBody ReplicationManifest manifest, HttpServletRequest servletRequest) {
+        try {
+            return ResponseEntity.ok(replicationReceiverService.missing(manifest, servletRequest.getRemoteAddr()));
+        } catch (ReplicationReceiverService.PeerNotAllowedException e) {
+            return forbidden(e);
+        } catch (Exception e) {
+            log.error("Error comparing replication manifest", e);
+            return ResponseEntity.internalServerError().body(error(e));
+        }
+    }
+
+    @GetMapping("/sessions/{sessionId}")
+    public ResponseEntity<ReplicationSessionStatus> getStatus(@PathVariable String sessionId) {
+        try {
+            return ResponseEntity.ok(replicationReceiverService.getStatus(sessionId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PutMapping("/sessions/{sessionId}/parts/{index}")
+    public ResponseEntity<Map<String, String>> uploadPart(
+            @PathVariable String sessionId,
+            @PathVariable int index,
+            @RequestHeader(ReplicationService.CHECKSUM_HEADER) String checksum,
+            HttpServletRequest servletRequest) {
+        try {
+            // Raw application/octet-stream body, streamed into MinIO as it arrives
+            replicationReceiverService.writePart(sessionId, index, checksum,
+                servletRequest.getContentLengthLong(), servletRequest.getInputStream(), servletRequest.getRemoteAddr());
+            return ResponseEntity.noContent().build();
+        } catch (ReplicationReceiverService.PeerNotAllowedException e) {
+            return forbidden(e);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(error(e));
+        } catch (Exception e) {
+            log.error("Error writing part {} of replication session: {}", index, sessionId, e);
+            return ResponseEntity.internalServerError().body(error(e));
+        }
+    }
+
+    @PostMapping("/sessions/{sessionId}/complete")
+    public ResponseEntity<?> complete(@PathVariable String sessionId, HttpServletRequest servletRequest) {
+        try {
+            return ResponseEntity.ok(replicationReceiverService.complete(sessionId, servletRequest.getRemoteAddr()));
+        } catch (ReplicationReceiverService.PeerNotAllowedException e) {
+            return forbidden(e);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(error(e));
+        } catch (Exception e) {
+            log.error("Error completing replication session: {}", sessionId, e);
+            return ResponseEntity.internalServerError().body(error(e));
+        }
+    }
+
+    // Sending side: backlog, running transfers and link budget per target organization
+    @GetMapping("/queue")
+    public ResponseEntity<ReplicationQueueStatus> getQueue() {
+        return ResponseEntity.ok(replicationQueueService.getStatus());
+    }
+
+    // Queues a video for an organization, or moves an already queued one ahead with INTERACTIVE
+    @PostMapping("/queue/{videoId}/{organization}")
+    public ResponseEntity<?> enqueue(
+            @PathVariable String videoId,
+            @PathVariable Organization organization,
+            @RequestParam(defaultValue = ReplicationQueueService.BACKGROUND) String priority) {
+        try {
+            return ResponseEntity.ok(replicationQueueService.enqueue(videoId, organization, priority));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e));
+        }
+    }
+
+    private ResponseEntity<Map<String, String>> forbidden(Exception e) {
+        log.warn("Refused replication request: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error(e));
+    }
+
+    private Map<String, String> error(Exception e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        return error;
+    }
+}
@@ -0,0 +1,63 @@
+package com.video.transcoding.controller;
+
+import com.video.transcoding.dto.AdmissionStatus;
+import com.video.transcoding.dto.SchedulerStatus;
+import com.video.transcoding.model.TranscodingJob;
+import com.video.transcoding.service.AdmissionControlService;
+import com.video.transcoding.service.JobCheckpointService;
+import com.video.transcoding.service.TranscodingScheduler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/transcoding")
+@RequiredArgsConstructor
+public class TranscodingStatusController {
+    private final TranscodingScheduler transcodingScheduler;
+    private final AdmissionControlService admissionControlService;
+    private final JobCheckpointService jobCheckpointService;
+
+    @GetMapping("/scheduler")
+    public ResponseEntity<SchedulerStatus> getSchedulerStatus() {
+        return ResponseEntity.ok(transcodingScheduler.getStatus());
+    }
+
+    @GetMapping("/admission")
+    public ResponseEntity<AdmissionStatus> getAdmissionStatus() {
+        return ResponseEntity.ok(admissionControlService.getStatus());
+    }
+
+    @GetMapping("/jobs/{videoId}")
+    public ResponseEntity<TranscodingJob> getJob(@PathVariable String videoId) {
+        try {
+            return ResponseEntity.ok(jobCheckpointService.getJob(videoId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PostMapping("/jobs/{videoId}/resume")
+    public ResponseEntity<Map<String, String>> resumeJob(@PathVariable String videoId) {
+        try {
+            jobCheckpointService.resume(videoId);
+            Map<String, String> response = new HashMap<>();
+            response.put("videoId", videoId);
+            response.put("message", "Job re-queued, finished renditions will be skipped");
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+}
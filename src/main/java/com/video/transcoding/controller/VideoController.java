@@ -1,62 +1,54 @@
 package com.video.transcoding.controller;
 
 import com.video.transcoding.dto.TranscodingRequest;
+import com.video.transcoding.service.HlsService;
+import com.video.transcoding.service.StreamingUploadService;
+import com.video.transcoding.service.TranscodingRequestPublisher;
 import com.video.transcoding.service.VideoProcessingService;
 import com.video.transcoding.service.WebSocketService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.nio.file.Files;
+import javax.servlet.http.HttpServletRequest;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 
+@Slf4j
 @RestController
 @RequestMapping("/api/videos")
 @RequiredArgsConstructor
 public class VideoController {
+    private static final MediaType HLS_PLAYLIST = MediaType.parseMediaType("application/vnd.apple.mpegurl");
+
     private final VideoProcessingService videoProcessingService;
-    private final KafkaTemplate<String, TranscodingRequest> kafkaTemplate;
+    private final HlsService hlsService;
+    private final StreamingUploadService streamingUploadService;
+    private final TranscodingRequestPublisher transcodingRequestPublisher;
     private final WebSocketService webSocketService;
 
     @PostMapping("/upload")
     public ResponseEntity<Map<String, String>> uploadVideo(
-            @RequestParam("file") MultipartFile file,
+            HttpServletRequest servletRequest,
             @AuthenticationPrincipal String userId) {
         try {
             String videoId = UUID.randomUUID().toString();
-            String originalFileName = file.getOriginalFilename();
-            String extension = originalFileName.substring(originalFileName.lastIndexOf("."));
 
             // Gửi thông báo bắt đầu upload
             webSocketService.sendProgress(userId, videoId, "UPLOADING", 0);
 
-            // Lưu file tạm thời
-            Path tempDir = Path.of("temp");
-            Files.createDirectories(tempDir);
-            Path filePath = tempDir.resolve(videoId + extension);
-            
-            // Upload với progress tracking
-            try (var inputStream = file.getInputStream()) {
-                long totalBytes = file.getSize();
-                long bytesRead = 0;
-                byte[] buffer = new byte[8192];
-                int read;
-                
-                while ((read = inputStream.read(buffer)) != -1) {
-                    Files.write(filePath, buffer, 0, read, StandardOpenOption.APPEND);
-                    bytesRead += read;
-                    int progress = (int) ((bytesRead * 100) / totalBytes);
-                    webSocketService.sendProgress(userId, videoId, "UPLOADING", progress);
-                }
-            }
+            // Multipart is resolved lazily, so the body is still unread here and is streamed to disk exactly once
+            StreamingUploadService.IngestedFile ingested = streamingUploadService.ingest(servletRequest, userId, videoId);
+            String originalFileName = ingested.getOriginalFileName();
+            String extension = ingested.getExtension();
+            Path filePath = ingested.getPath();
 
             // Gửi thông báo upload hoàn thành
             webSocketService.sendProgress(userId, videoId, "UPLOAD_COMPLETED", 100);
@@ -68,15 +60,20 @@ public class VideoController {
             request.setOriginalFileName(originalFileName);
             request.setExtension(extension);
             request.setOriginalFilePath(filePath.toString());
+            request.setContentHash(ingested.getContentHash());
+            request.setSourceSize(ingested.getSize());
 
-            // Gửi request vào Kafka topic
-            kafkaTemplate.send("video-transcoding", request);
+            transcodingRequestPublisher.publish(request);
 
             Map<String, String> response = new HashMap<>();
             response.put("videoId", videoId);
             response.put("message", "Video upload started, processing in background");
             
             return ResponseEntity.ok(response);
+        } catch (StreamingUploadService.UploadTooLargeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -98,32 +95,71 @@ public class VideoController {
         }
     }
 
-    @PostMapping("/share")
-    public ResponseEntity<Map<String, String>> shareVideo(
+    @DeleteMapping("/{videoId}")
+    public ResponseEntity<Map<String, String>> deleteVideo(
             @PathVariable String videoId,
-            @RequestBody ShareRequest request) {
-        // Kiểm tra quyền chia sẻ
-        // Tạo VideoShare record
-        // Gửi thông báo cho người nhận
-        // Trả về URL chia sẻ
-        return null; // Placeholder return, actual implementation needed
+            @AuthenticationPrincipal String userId) {
+        try {
+            videoProcessingService.deleteVideo(videoId, userId);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Error deleting video: {}", videoId, e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
     }
 
-    @KafkaListener(topics = "video-transcoding-result")
-    public void handleTranscodingResult(TranscodingResult result) {
-        if (result.isSuccess()) {
-            // Gửi email thông báo
-            notificationService.sendEmail(
-                result.getUserId(),
-                "Video Processing Complete",
-                "Your video " + result.getVideoId() + " has been processed successfully."
-            );
-            
-            // Hoặc gửi thông báo WebSocket
-            notificationService.sendWebSocketNotification(
-                result.getUserId(),
-                "Video " + result.getVideoId() + " is ready!"
-            );
+    @GetMapping("/{videoId}/hls")
+    public ResponseEntity<Map<String, String>> getHlsUrl(@PathVariable String videoId) {
+        try {
+            // Only videos packaged as HLS get a URL; progressive ones are played through /url
+            hlsService.findPackage(videoId);
+        } catch (HlsService.HlsNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Error looking up HLS package of video: {}", videoId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+        // Playlists are served through the API so segment URIs can be presigned per request
+        String url = ServletUriComponentsBuilder.fromCurrentContextPath()
+            .path("/api/videos/{videoId}/hls/master.m3u8")
+            .buildAndExpand(videoId)
+            .toUriString();
+        Map<String, String> response = new HashMap<>();
+        response.put("url", url);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/{videoId}/hls/master.m3u8")
+    public ResponseEntity<String> getMasterPlaylist(@PathVariable String videoId) {
+        try {
+            return ResponseEntity.ok()
+                .contentType(HLS_PLAYLIST)
+                .body(hlsService.getMasterPlaylist(videoId));
+        } catch (HlsService.HlsNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Error serving master playlist of video: {}", videoId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/{videoId}/hls/{quality}/index.m3u8")
+    public ResponseEntity<String> getMediaPlaylist(
+            @PathVariable String videoId,
+            @PathVariable String quality) {
+        try {
+            return ResponseEntity.ok()
+                .contentType(HLS_PLAYLIST)
+                .body(hlsService.getMediaPlaylist(videoId, quality));
+        } catch (HlsService.HlsNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Error serving {} playlist of video: {}", quality, videoId, e);
+            return ResponseEntity.internalServerError().build();
         }
     }
-} 
\ No newline at end of file
+}
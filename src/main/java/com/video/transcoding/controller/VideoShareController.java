@@ -1,17 +1,22 @@
 package com.video.transcoding.controller;
 
+import com.video.transcoding.dto.BulkShareRequest;
+import com.video.transcoding.dto.BulkShareResult;
+import com.video.transcoding.dto.ShareBatchSyncRequest;
+import com.video.transcoding.dto.SharePage;
 import com.video.transcoding.model.Organization;
 import com.video.transcoding.model.VideoShare;
 import com.video.transcoding.service.VideoShareService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
+@Slf4j
 @RestController
 @RequestMapping("/api/videos/share")
 @RequiredArgsConstructor
@@ -38,26 +43,67 @@ public class VideoShareController {
             
             return ResponseEntity.ok(response);
         } catch (IllegalArgumentException e) {
-            Map<String, String> error = new HashMap<>();
+            Map<String, Object> error = new HashMap<>();
             error.put("error", "Invalid organization IP. Must be either 192.168.205.108 or 192.168.205.104");
             return ResponseEntity.badRequest().body(error);
         } catch (Exception e) {
-            Map<String, String> error = new HashMap<>();
+            Map<String, Object> error = new HashMap<>();
             error.put("error", e.getMessage());
             return ResponseEntity.badRequest().body(error);
         }
     }
 
+    // Many videos with many recipients in one call; at most video.share.bulk-max-shares pairs
+    @PostMapping("/bulk")
+    public ResponseEntity<?> shareVideos(
+            @RequestBody BulkShareRequest request,
+            @AuthenticationPrincipal String userId) {
+        try {
+            BulkShareResult result = videoShareService.shareVideos(request, userId);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    // Receives every share one bulk request created for this organization's users
+    @PostMapping("/sync/batch")
+    public ResponseEntity<Void> receiveShareBatch(@RequestBody ShareBatchSyncRequest request) {
+        try {
+            videoShareService.receiveShareBatch(request);
+            return ResponseEntity.ok().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error receiving share batch from {}", request.getSourceOrganization(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @GetMapping("/shared-with-me")
-    public ResponseEntity<List<VideoShare>> getSharedVideos(
-            @RequestParam String username) {
-        return ResponseEntity.ok(videoShareService.getSharedVideos(username));
+    public ResponseEntity<SharePage> getSharedVideos(
+            @RequestParam String username,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return ResponseEntity.ok(videoShareService.getSharedWithMe(username, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/{videoId}/shares")
-    public ResponseEntity<List<VideoShare>> getVideoShares(
-            @PathVariable String videoId) {
-        return ResponseEntity.ok(videoShareService.getVideoShares(videoId));
+    public ResponseEntity<SharePage> getVideoShares(
+            @PathVariable String videoId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return ResponseEntity.ok(videoShareService.getVideoShares(videoId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @DeleteMapping("/{shareId}")
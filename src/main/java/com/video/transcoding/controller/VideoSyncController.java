@@ -1,21 +1,17 @@
 package com.video.transcoding.controller;
 
 import com.video.transcoding.dto.VideoSyncRequest;
+import com.video.transcoding.model.Organization;
 import com.video.transcoding.model.Video;
 import com.video.transcoding.model.VideoShare;
 import com.video.transcoding.repository.VideoRepository;
 import com.video.transcoding.repository.VideoShareRepository;
 import com.video.transcoding.service.WebSocketService;
-import io.minio.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
@@ -27,12 +23,8 @@ import java.util.UUID;
 public class VideoSyncController {
     private final VideoRepository videoRepository;
     private final VideoShareRepository videoShareRepository;
-    private final MinioClient minioClient;
     private final WebSocketService webSocketService;
 
-    @Value("${minio.bucket}")
-    private String bucketName;
-
     @PostMapping
     public ResponseEntity<Void> syncVideo(@RequestBody VideoSyncRequest request) {
         try {
@@ -49,6 +41,10 @@ public class VideoSyncController {
                     Video.VideoQuality videoQuality = new Video.VideoQuality();
                     videoQuality.setName(quality.getName());
                     videoQuality.setObjectName(quality.getObjectName());
+                    videoQuality.setManifest(quality.getManifest());
+                    if (quality.getManifest() != null) {
+                        videoQuality.setHeight(quality.getManifest().getHeight());
+                    }
                     return videoQuality;
                 })
                 .collect(java.util.stream.Collectors.toList());
@@ -63,7 +59,7 @@ public class VideoSyncController {
             share.setSharedByUserId(request.getSharedByUserId());
             share.setSharedWithUsername(request.getSharedWithUsername());
             share.setSharedWithIp(request.getSharedWithIp());
-            share.setSharedWithOrganization(request.getSourceOrganization());
+            share.setSharedWithOrganization(Organization.valueOf(request.getSourceOrganization()));
             share.setCreatedAt(request.getCreatedAt());
             share.setExpiresAt(request.getExpiresAt());
             videoShareRepository.save(share);
@@ -74,28 +70,4 @@ public class VideoSyncController {
             return ResponseEntity.internalServerError().build();
         }
     }
-
-    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Void> uploadVideoFile(
-            @RequestParam("file") MultipartFile file,
-            @RequestParam("objectName") String objectName) {
-        try {
-            // Upload to MinIO
-            try (InputStream inputStream = file.getInputStream()) {
-                minioClient.putObject(
-                    PutObjectArgs.builder()
-                        .bucket(bucketName)
-                        .object(objectName)
-                        .stream(inputStream, file.getSize(), -1)
-                        .contentType(file.getContentType())
-                        .build()
-                );
-            }
-
-            return ResponseEntity.ok().build();
-        } catch (Exception e) {
-            log.error("Error uploading video file: {}", objectName, e);
-            return ResponseEntity.internalServerError().build();
-        }
-    }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,17 @@
+package com.video.transcoding.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class AdmissionStatus {
+    private String state; // ACCEPTING, PAUSED, STOPPED
+    // Limits currently exceeded, empty while accepting
+    private List<String> reasons;
+    private long freeDiskBytes;
+    private int pendingEncodes;
+    private double heapUsage;
+    private LocalDateTime since;
+}
@@ -0,0 +1,19 @@
+package com.video.transcoding.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Shares every video with every recipient
+@Data
+public class BulkShareRequest {
+    private List<String> videoIds = new ArrayList<>();
+    private List<Recipient> recipients = new ArrayList<>();
+
+    @Data
+    public static class Recipient {
+        private String username;
+        private String ip;
+    }
+}
@@ -0,0 +1,15 @@
+package com.video.transcoding.dto;
+
+import lombok.Data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+public class BulkShareResult {
+    private int shared;
+    // (video, recipient) pairs that already had an active share and were left as they are
+    private int alreadyShared;
+    // Organization -> shares created for its users
+    private Map<String, Integer> sharesByOrganization = new HashMap<>();
+}
@@ -0,0 +1,11 @@
+package com.video.transcoding.dto;
+
+import lombok.Data;
+
+@Data
+public class CreateUploadSessionRequest {
+    private String fileName;
+    private long totalSize;
+    // Optional; the server default is used when 0
+    private long chunkSize;
+}
@@ -0,0 +1,15 @@
+package com.video.transcoding.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class DirectUploadSession {
+    private String sessionId;
+    private String videoId;
+    private String objectName;
+    // Presigned PUT; the file body goes to MinIO without passing through the API
+    private String uploadUrl;
+    private LocalDateTime expiresAt;
+}
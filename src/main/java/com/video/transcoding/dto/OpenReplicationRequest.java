@@ -0,0 +1,14 @@
+package com.video.transcoding.dto;
+
+import lombok.Data;
+
+@Data
+public class OpenReplicationRequest {
+    private String objectName;
+    private String contentType;
+    private long totalSize;
+    // SHA-256 of the whole object, stored with it on the target so later diffs can tell a re-encode from a copy
+    private String checksum;
+    private long partSize;
+    private String sourceOrganization;
+}
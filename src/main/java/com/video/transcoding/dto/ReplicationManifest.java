@@ -0,0 +1,24 @@
+package com.video.transcoding.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Objects making up a video on the sending side; the target answers with the entries it lacks
+@Data
+public class ReplicationManifest {
+    private List<Entry> objects = new ArrayList<>();
+    // Set by the sender on a diff request; the target only answers its peers
+    private String sourceOrganization;
+
+    @Data
+    public static class Entry {
+        private String objectName;
+        private long size;
+        // Taken from the rendition manifest when known, so the sender needs no stat call
+        private String contentType;
+        // SHA-256 of the whole object from the rendition manifest; null for entries listed from MinIO
+        private String checksum;
+    }
+}
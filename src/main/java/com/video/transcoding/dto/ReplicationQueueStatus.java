@@ -0,0 +1,37 @@
+package com.video.transcoding.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ReplicationQueueStatus {
+    private List<Link> links = new ArrayList<>();
+
+    @Data
+    public static class Link {
+        private String organization;
+        // Current budget of this node, 0 = unlimited
+        private long bytesPerSecond;
+        private boolean offPeak;
+        private int running;
+        private long queuedInteractive;
+        private long queuedBackground;
+        private long failed;
+        private List<Transfer> transfers = new ArrayList<>();
+    }
+
+    @Data
+    public static class Transfer {
+        private String videoId;
+        private String priority;
+        private String status;
+        private int attempts;
+        private long bytesTotal;
+        private long bytesSent;
+        private LocalDateTime enqueuedAt;
+        private LocalDateTime startedAt;
+    }
+}
@@ -0,0 +1,16 @@
+package com.video.transcoding.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ReplicationSessionStatus {
+    private String sessionId;
+    private String objectName;
+    private long totalSize;
+    private long partSize;
+    private int partCount;
+    private List<Integer> confirmedParts;
+    private String status;
+}
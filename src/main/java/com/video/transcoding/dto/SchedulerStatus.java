@@ -0,0 +1,12 @@
+package com.video.transcoding.dto;
+
+import lombok.Data;
+
+@Data
+public class SchedulerStatus {
+    private int cpuBudget;
+    private int usedSlots;
+    private int activeEncodes;
+    private int queueDepth;
+    private int maxConcurrentJobs;
+}
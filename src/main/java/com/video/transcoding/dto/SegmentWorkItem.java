@@ -0,0 +1,18 @@
+package com.video.transcoding.dto;
+
+import lombok.Data;
+
+@Data
+public class SegmentWorkItem {
+    private String videoId;
+    private String userId;
+    private String originalFileName;
+    private String extension;
+    private int segmentIndex;
+    private int segmentCount;
+    private String quality;
+    private String sourceObjectName;
+    // Segments follow their video's lane so a bulk job never floods the interactive topic
+    private String tenantId;
+    private String priority;
+}
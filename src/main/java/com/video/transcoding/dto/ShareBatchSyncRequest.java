@@ -0,0 +1,38 @@
+package com.video.transcoding.dto;
+
+import com.video.transcoding.model.Video;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Every share a bulk request created for one organization's users; each video is described once
+@Data
+public class ShareBatchSyncRequest {
+    private String sourceOrganization;
+    private List<SyncedVideo> videos = new ArrayList<>();
+    private List<SyncedShare> shares = new ArrayList<>();
+
+    @Data
+    public static class SyncedVideo {
+        private String videoId;
+        private String sharedByUserId;
+        private LocalDateTime createdAt;
+        private List<VideoSyncRequest.VideoQuality> qualities = new ArrayList<>();
+        // Set for HLS videos, whose renditions are playlists and segments rather than the files in qualities
+        private Video.HlsPackage hls;
+    }
+
+    @Data
+    public static class SyncedShare {
+        // Id of the share at the source; the target reuses it so a resent batch overwrites instead of duplicating
+        private String shareId;
+        private String videoId;
+        private String sharedByUserId;
+        private String sharedWithUsername;
+        private String sharedWithIp;
+        private LocalDateTime createdAt;
+        private LocalDateTime expiresAt;
+    }
+}
@@ -0,0 +1,12 @@
+package com.video.transcoding.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class SharePage {
+    private List<VideoShareSummary> items;
+    // Pass back as ?cursor= for the next page; null on the last page
+    private String nextCursor;
+}
@@ -9,4 +9,13 @@ public class TranscodingRequest {
     private String originalFileName;
     private String extension;
     private String originalFilePath;
+    // Set instead of originalFilePath when the source was uploaded straight to MinIO
+    private String sourceObjectName;
+    // SHA-256 of the source when computed during ingest; otherwise the transcoder hashes it
+    private String contentHash;
+    private long sourceSize;
+    // Fairness is enforced per tenant; defaults to the uploading user
+    private String tenantId;
+    // INTERACTIVE or BULK; chosen by the publisher when not set
+    private String priority;
 } 
\ No newline at end of file
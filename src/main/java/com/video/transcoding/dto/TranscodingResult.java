@@ -1,5 +1,6 @@
 package com.video.transcoding.dto;
 
+import com.video.transcoding.model.Video;
 import lombok.Data;
 
 import java.time.LocalDateTime;
@@ -20,5 +21,6 @@ public class TranscodingResult {
         private int height;
         private String bitrate;
         private String objectName;
+        private Video.RenditionManifest manifest;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.video.transcoding.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class UploadSessionStatus {
+    private String sessionId;
+    private String videoId;
+    private String status;
+    private long totalSize;
+    private long chunkSize;
+    private int chunkCount;
+    private long receivedBytes;
+    private List<ByteRange> missingRanges;
+
+    @Data
+    public static class ByteRange {
+        private long start;
+        // Exclusive
+        private long end;
+    }
+}
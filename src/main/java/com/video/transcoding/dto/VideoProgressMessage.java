@@ -7,6 +7,9 @@ import java.time.LocalDateTime;
 public class VideoProgressMessage {
     private String videoId;
     private String status;
+    // Rendition the progress refers to; null for the whole video
+    private String quality;
     private int progress;
+    private Long etaSeconds;
     private LocalDateTime timestamp;
-} 
\ No newline at end of file
+}
@@ -0,0 +1,18 @@
+package com.video.transcoding.dto;
+
+import com.video.transcoding.model.Organization;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Projection of a video_shares document for listings
+@Data
+public class VideoShareSummary {
+    private String id;
+    private String videoId;
+    private String sharedByUserId;
+    private String sharedWithUsername;
+    private Organization sharedWithOrganization;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+}
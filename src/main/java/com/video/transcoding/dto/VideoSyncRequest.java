@@ -1,5 +1,6 @@
 package com.video.transcoding.dto;
 
+import com.video.transcoding.model.Video;
 import lombok.Data;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -21,5 +22,7 @@ public class VideoSyncRequest {
         private String objectName;
         private String contentType;
         private long size;
+        // Full rendition manifest, so the receiving organization keeps sizes, checksums and stream details
+        private Video.RenditionManifest manifest;
     }
 } 
\ No newline at end of file
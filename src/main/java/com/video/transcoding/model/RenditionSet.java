@@ -0,0 +1,27 @@
+package com.video.transcoding.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Renditions of one source encoded with one ladder, shared by every Video uploaded with the same content
+@Data
+@Document(collection = "rendition_sets")
+public class RenditionSet {
+    @Id
+    private String id; // contentHash:ladderFingerprint
+    private String contentHash;
+    private String ladderFingerprint;
+    // The objects live under this video's prefix, whether or not that video still exists
+    private String ownerVideoId;
+    private List<Video.VideoQuality> qualities;
+    private Video.HlsPackage hls;
+    // Videos referencing this set; the objects are removed when it drops to zero
+    private int refCount;
+    private String status; // READY, DELETING
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,30 @@
+package com.video.transcoding.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Receiving side of one replicated object; parts are kept as separate objects until the session is composed
+@Data
+@Document(collection = "replication_sessions")
+public class ReplicationSession {
+    @Id
+    private String id;
+    private String objectName;
+    private String contentType;
+    private long totalSize;
+    private String checksum;
+    private long partSize;
+    private int partCount;
+    private String sourceOrganization;
+    // Parts stored with a matching checksum; a resumed transfer sends only the rest
+    private List<Integer> confirmedParts = new ArrayList<>();
+    private String status; // OPEN, COMPLETED
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,31 @@
+package com.video.transcoding.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// One queued transfer of a video to another organization; survives restarts and is picked up by any node
+@Data
+@Document(collection = "replication_tasks")
+public class ReplicationTask {
+    @Id
+    private String id; // videoId:organization
+    private String videoId;
+    private String targetOrganization;
+    private String priority; // INTERACTIVE, BACKGROUND
+    // 0 = INTERACTIVE, 1 = BACKGROUND; dispatch sorts on it
+    private int rank;
+    private String status; // QUEUED, RUNNING, DONE, FAILED
+    private int attempts;
+    // Bytes that still had to cross the link when the transfer started, and how many have so far
+    private long bytesTotal;
+    private long bytesSent;
+    private String errorMessage;
+    private LocalDateTime enqueuedAt;
+    // A QUEUED task is not dispatched before this, so failed transfers back off
+    private LocalDateTime notBefore;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,36 @@
+package com.video.transcoding.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Document(collection = "segmented_jobs")
+public class SegmentedJob {
+    @Id
+    private String id; // videoId
+    private String userId;
+    private String extension;
+    // SHA-256 of the source, so the assembled video registers its renditions for reuse like a single-node job
+    private String contentHash;
+    private int segmentCount;
+    private List<String> qualities = new ArrayList<>();
+    private Video.SourceInfo source;
+    // The whole source's audio, encoded once at split time; null when the source has none
+    private String audioObjectName;
+    // "<quality>:<segmentIndex>" for every encoded and uploaded segment
+    private List<String> completedSegments = new ArrayList<>();
+    private List<String> assembledQualities = new ArrayList<>();
+    // quality name -> manifest of the assembled rendition
+    private Map<String, Video.RenditionManifest> manifests = new HashMap<>();
+    private String status; // SPLIT, COMPLETED, FAILED
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,25 @@
+package com.video.transcoding.model;
+
+import com.video.transcoding.dto.ShareBatchSyncRequest;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// Outbox entry for one bulk share batch, kept until the target organization has accepted it
+@Data
+@Document(collection = "share_batch_syncs")
+public class ShareBatchSync {
+    @Id
+    private String id;
+    private Organization targetOrganization;
+    private ShareBatchSyncRequest request;
+    private String status; // PENDING, SENT, FAILED
+    private int attempts;
+    private String errorMessage;
+    // Not sent before this: backs off failed sends, and leases the entry to the node sending it
+    private LocalDateTime notBefore;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -22,4 +22,6 @@ public class ShareSync {
     private boolean isProcessed;
     private String status; // PENDING, PROCESSED, FAILED
     private String errorMessage;
+    // Failed writes so far; the sync stays pending until share.sync.max-attempts
+    private int attempts;
 } 
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.video.transcoding.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Fleet-wide queue usage of one tenant, shared by every consumer instance
+@Data
+@Document(collection = "tenant_usage")
+public class TenantUsage {
+    @Id
+    private String id; // tenantId
+    // Interactive jobs published but not yet picked up; entries past the expiry stop counting and are pruned,
+    // so a record that is never consumed (lost, dead-lettered, deleted topic) can't hold the tenant in bulk
+    private List<QueuedJob> queuedInteractive = new ArrayList<>();
+    // Video ids of the bulk jobs this tenant is running; a redelivered job re-adds the same id
+    private List<String> activeBulkJobs = new ArrayList<>();
+    private LocalDateTime updatedAt;
+
+    @Data
+    public static class QueuedJob {
+        private String videoId;
+        private LocalDateTime queuedAt;
+    }
+}
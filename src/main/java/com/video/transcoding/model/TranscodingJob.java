@@ -0,0 +1,43 @@
+package com.video.transcoding.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+// Checkpoint of one processVideo run; a redelivered or resumed job skips every rendition recorded here
+@Data
+@Document(collection = "transcoding_jobs")
+public class TranscodingJob {
+    @Id
+    private String id; // videoId
+    private String userId;
+    private String originalFileName;
+    private String extension;
+    private String tenantId;
+    private String priority;
+    private long sourceSize;
+    private String contentHash;
+    // Copy of the source in MinIO, so any node can pick the job up
+    private String sourceObjectName;
+    // quality name -> finished rendition
+    private Map<String, RenditionState> renditions = new HashMap<>();
+    private int attempts;
+    private String status; // RUNNING, RETRYING, DISTRIBUTED, COMPLETED, FAILED
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @Data
+    public static class RenditionState {
+        private String objectName;
+        private boolean remuxed;
+        private Video.RenditionManifest manifest;
+        // HLS packaging only: what the master playlist needs to list this rendition
+        private Video.HlsRendition hls;
+        private LocalDateTime completedAt;
+    }
+}
@@ -0,0 +1,32 @@
+package com.video.transcoding.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Document(collection = "upload_sessions")
+public class UploadSession {
+    @Id
+    private String id;
+    private String type; // CHUNKED, DIRECT
+    private String videoId;
+    private String userId;
+    private String originalFileName;
+    private String extension;
+    private String filePath;
+    // DIRECT sessions: the client PUTs straight to this MinIO object
+    private String sourceObjectName;
+    private long totalSize;
+    private long chunkSize;
+    private int chunkCount;
+    private List<Integer> receivedChunks = new ArrayList<>();
+    private String status; // OPEN, COMPLETED
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime expiresAt;
+}
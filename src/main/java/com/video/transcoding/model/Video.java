@@ -5,6 +5,7 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Data
@@ -15,10 +16,29 @@ public class Video {
     private String userId;
     private String originalFileName;
     private String extension;
+    // SHA-256 of the uploaded source
+    private String contentHash;
+    // Set when the renditions are shared through a RenditionSet rather than owned by this video
+    private String renditionSetId;
+    private SourceInfo source;
     private List<VideoQuality> qualities;
+    private HlsPackage hls;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // What ffprobe found in the upload; width and height are as displayed, after rotation
+    @Data
+    public static class SourceInfo {
+        private int width;
+        private int height;
+        private double frameRate;
+        private String videoCodec;
+        private String pixelFormat;
+        private String audioCodec;
+        private double durationSeconds;
+        private long bitRate;
+    }
+
     @Data
     public static class VideoQuality {
         private String name;
@@ -27,5 +47,54 @@ public class Video {
         private String preset;
         private int crf;
         private String objectName;
+        // Stream copy of the source rather than an encode; preset and crf did not apply
+        private boolean remuxed;
+        // Recorded as the rendition was produced; null for videos encoded before manifests existed
+        private RenditionManifest manifest;
+    }
+
+    // What a finished rendition actually is, so sync and replication never have to ask MinIO
+    @Data
+    public static class RenditionManifest {
+        private int width;
+        private int height;
+        private String videoCodec;
+        private String audioCodec;
+        // RFC 6381 codec string for the HLS CODECS attribute, e.g. "avc1.640028,mp4a.40.2"; null when unknown
+        private String codecs;
+        private double durationSeconds;
+        // Average distance between keyframes, 0 when unknown
+        private double keyframeIntervalSeconds;
+        // Sum of the objects below
+        private long size;
+        // Progressive: the MP4 itself; HLS: init segment, media segments and media playlist
+        private List<ManifestObject> objects = new ArrayList<>();
+    }
+
+    @Data
+    public static class ManifestObject {
+        private String objectName;
+        private String contentType;
+        private long size;
+        // SHA-256 of the bytes as uploaded
+        private String checksum;
+    }
+
+    @Data
+    public static class HlsPackage {
+        private String masterPlaylistObject;
+        private ManifestObject masterPlaylist;
+        private int segmentDuration;
+        private List<HlsRendition> renditions;
+    }
+
+    @Data
+    public static class HlsRendition {
+        private String name;
+        private long bandwidth;
+        private String playlistObject;
+        private String initSegmentObject;
+        private int segmentCount;
+        private RenditionManifest manifest;
     }
-} 
\ No newline at end of file
+}
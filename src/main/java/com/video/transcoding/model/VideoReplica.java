@@ -0,0 +1,32 @@
+package com.video.transcoding.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// What a target organization already holds of one video; later shares to the same organization send only the difference
+@Data
+@Document(collection = "video_replicas")
+public class VideoReplica {
+    @Id
+    private String id; // videoId:organization
+    private String videoId;
+    private String targetOrganization;
+    private List<ReplicatedObject> objects = new ArrayList<>();
+    private String status; // TRANSFERRING, REPLICATED, FAILED
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @Data
+    public static class ReplicatedObject {
+        private String objectName;
+        private long size;
+        private String checksum;
+        private LocalDateTime replicatedAt;
+    }
+}
@@ -0,0 +1,9 @@
+package com.video.transcoding.repository;
+
+import com.video.transcoding.model.SegmentedJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SegmentedJobRepository extends MongoRepository<SegmentedJob, String> {
+}
@@ -0,0 +1,13 @@
+package com.video.transcoding.repository;
+
+import com.video.transcoding.model.UploadSession;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UploadSessionRepository extends MongoRepository<UploadSession, String> {
+    List<UploadSession> findByTypeAndStatusAndExpiresAtBefore(String type, String status, LocalDateTime time);
+}
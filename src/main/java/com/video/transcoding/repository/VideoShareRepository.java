@@ -7,8 +7,10 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface VideoShareRepository extends MongoRepository<VideoShare, String> {
+public interface VideoShareRepository extends MongoRepository<VideoShare, String>, VideoShareRepositoryCustom {
     List<VideoShare> findByVideoIdAndIsActiveTrue(String videoId);
     List<VideoShare> findBySharedWithUsernameAndIsActiveTrue(String username);
     boolean existsByVideoIdAndSharedWithUsernameAndIsActiveTrue(String videoId, String username);
+    List<VideoShare> findBySharedByUserId(String userId);
+    List<VideoShare> findBySharedWithUsernameAndSharedWithIp(String username, String ip);
 } 
\ No newline at end of file
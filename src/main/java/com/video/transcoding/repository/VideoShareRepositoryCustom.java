@@ -0,0 +1,10 @@
+package com.video.transcoding.repository;
+
+import com.video.transcoding.dto.SharePage;
+
+public interface VideoShareRepositoryCustom {
+    // Active shares newest first, one keyset page at a time; cursor is null for the first page
+    SharePage findActiveSharedWith(String username, String cursor, int limit);
+
+    SharePage findActiveByVideoId(String videoId, String cursor, int limit);
+}
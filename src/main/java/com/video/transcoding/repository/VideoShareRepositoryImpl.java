@@ -0,0 +1,87 @@
+package com.video.transcoding.repository;
+
+import com.video.transcoding.dto.SharePage;
+import com.video.transcoding.dto.VideoShareSummary;
+import com.video.transcoding.model.VideoShare;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class VideoShareRepositoryImpl implements VideoShareRepositoryCustom {
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public SharePage findActiveSharedWith(String username, String cursor, int limit) {
+        return page(Criteria.where("sharedWithUsername").is(username).and("isActive").is(true), cursor, limit);
+    }
+
+    @Override
+    public SharePage findActiveByVideoId(String videoId, String cursor, int limit) {
+        return page(Criteria.where("videoId").is(videoId).and("isActive").is(true), cursor, limit);
+    }
+
+    // Seeks past the cursor on (createdAt, _id) instead of skipping, so deep pages cost the same as the first
+    private SharePage page(Criteria criteria, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] position = decodeCursor(cursor);
+            LocalDateTime createdAt;
+            try {
+                createdAt = LocalDateTime.parse(position[0]);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            criteria = new Criteria().andOperator(criteria, new Criteria().orOperator(
+                Criteria.where("createdAt").lt(createdAt),
+                Criteria.where("createdAt").is(createdAt).and("_id").lt(position[1])
+            ));
+        }
+
+        Query query = Query.query(criteria)
+            .with(Sort.by(Sort.Direction.DESC, "createdAt", "_id"))
+            // One extra row tells whether another page exists
+            .limit(size + 1);
+        query.fields()
+            .include("videoId", "sharedByUserId", "sharedWithUsername", "sharedWithOrganization", "createdAt", "expiresAt");
+        List<VideoShareSummary> items = mongoTemplate.find(query, VideoShareSummary.class,
+            mongoTemplate.getCollectionName(VideoShare.class));
+
+        SharePage page = new SharePage();
+        if (items.size() > size) {
+            items = items.subList(0, size);
+            VideoShareSummary last = items.get(size - 1);
+            page.setNextCursor(encodeCursor(last.getCreatedAt(), last.getId()));
+        }
+        page.setItems(items);
+        return page;
+    }
+
+    private static String encodeCursor(LocalDateTime createdAt, String id) {
+        String position = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        String[] position;
+        try {
+            position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (position.length != 2) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return position;
+    }
+}
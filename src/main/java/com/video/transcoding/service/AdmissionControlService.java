@@ -0,0 +1,172 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.AdmissionConfig;
+import com.video.transcoding.config.VideoProcessingConfig;
+import com.video.transcoding.dto.AdmissionStatus;
+import com.video.transcoding.dto.SchedulerStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AdmissionControlService {
+    // Listener ids of the transcoding lanes; result listeners keep running regardless
+    static final List<String> JOB_LISTENERS = List.of(
+        TranscodingConsumer.LISTENER_ID, BulkTranscodingConsumer.LISTENER_ID, RetryTranscodingConsumer.LISTENER_ID);
+
+    private final AdmissionConfig admissionConfig;
+    private final VideoProcessingConfig videoProcessingConfig;
+    private final TranscodingScheduler transcodingScheduler;
+    private final KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    private volatile AdmissionStatus status = initialStatus();
+    // Only touched from evaluate(), which the scheduler never runs concurrently
+    private long cachedUsedBytes;
+    private long usedBytesMeasuredAt;
+
+    public AdmissionStatus getStatus() {
+        return status;
+    }
+
+    @Scheduled(fixedDelayString = "${video.admission.check-interval-ms:2000}")
+    public void evaluate() {
+        if (!admissionConfig.isEnabled()) {
+            return;
+        }
+
+        long freeDisk = freeDiskBytes();
+        SchedulerStatus scheduler = transcodingScheduler.getStatus();
+        int pendingEncodes = scheduler.getActiveEncodes() + scheduler.getQueueDepth();
+        int maxPending = admissionConfig.getMaxPendingEncodes() > 0
+            ? admissionConfig.getMaxPendingEncodes()
+            : 2 * scheduler.getCpuBudget();
+        Runtime runtime = Runtime.getRuntime();
+        double heapUsage = (double) (runtime.totalMemory() - runtime.freeMemory()) / runtime.maxMemory();
+
+        // Paused nodes must clear the limits by a margin before taking work again
+        boolean accepting = "ACCEPTING".equals(status.getState());
+        double margin = accepting ? 0 : admissionConfig.getResumeMargin();
+        List<String> reasons = new ArrayList<>();
+        if (freeDisk < admissionConfig.getMinFreeDiskBytes() * (1 + margin)) {
+            reasons.add("LOW_DISK");
+        }
+        if (pendingEncodes > maxPending * (1 - margin)) {
+            reasons.add("ENCODES");
+        }
+        if (heapUsage > admissionConfig.getMaxHeapUsage() * (1 - margin)) {
+            reasons.add("MEMORY");
+        }
+
+        AdmissionStatus next = new AdmissionStatus();
+        next.setReasons(reasons);
+        next.setFreeDiskBytes(freeDisk);
+        next.setPendingEncodes(pendingEncodes);
+        next.setHeapUsage(heapUsage);
+
+        if (reasons.isEmpty()) {
+            if (!accepting) {
+                log.info("Resuming transcoding listeners (was {})", status.getState());
+                for (MessageListenerContainer container : jobContainers()) {
+                    if (!container.isRunning()) {
+                        container.start();
+                    }
+                    container.resume();
+                }
+            }
+            next.setState("ACCEPTING");
+        } else if (accepting) {
+            // Pausing keeps the partitions, so in-flight offsets stay ours and a short spike costs no rebalance
+            log.warn("Pausing transcoding listeners: {}", reasons);
+            jobContainers().forEach(MessageListenerContainer::pause);
+            next.setState("PAUSED");
+        } else if ("PAUSED".equals(status.getState())
+                && status.getSince().plusNanos(admissionConfig.getStopAfterMs() * 1_000_000).isBefore(LocalDateTime.now())) {
+            // Still overloaded: leave the group so the waiting records are rebalanced to other consumers
+            log.warn("Stopping transcoding listeners after {} ms paused: {}", admissionConfig.getStopAfterMs(), reasons);
+            jobContainers().forEach(container -> container.stop(() -> log.info("Listener {} stopped", container.getListenerId())));
+            next.setState("STOPPED");
+        } else {
+            next.setState(status.getState());
+        }
+        next.setSince(next.getState().equals(status.getState()) ? status.getSince() : LocalDateTime.now());
+        status = next;
+    }
+
+    private List<MessageListenerContainer> jobContainers() {
+        List<MessageListenerContainer> containers = new ArrayList<>();
+        for (String id : JOB_LISTENERS) {
+            MessageListenerContainer container = kafkaListenerEndpointRegistry.getListenerContainer(id);
+            if (container != null) {
+                containers.add(container);
+            }
+        }
+        return containers;
+    }
+
+    private long freeDiskBytes() {
+        try {
+            Path tempDir = Path.of(videoProcessingConfig.getTempDir());
+            Files.createDirectories(tempDir);
+            long usable = Files.getFileStore(tempDir).getUsableSpace();
+            long capacity = admissionConfig.getTempDirCapacityBytes();
+            if (capacity <= 0) {
+                return usable;
+            }
+            // getUsableSpace() reports the node's disk; the volume limit is what gets the pod evicted
+            return Math.min(usable, Math.max(0, capacity - cachedUsedBytes(tempDir)));
+        } catch (Exception e) {
+            log.warn("Could not read free space of temp-dir", e);
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private long cachedUsedBytes(Path tempDir) throws IOException {
+        long now = System.currentTimeMillis();
+        if (usedBytesMeasuredAt == 0 || now - usedBytesMeasuredAt >= admissionConfig.getUsageCacheMs()) {
+            cachedUsedBytes = usedBytes(tempDir);
+            usedBytesMeasuredAt = now;
+        }
+        return cachedUsedBytes;
+    }
+
+    private static long usedBytes(Path dir) throws IOException {
+        long[] used = {0};
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                used[0] += attrs.size();
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                // Jobs delete their files while we walk
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return used[0];
+    }
+
+    private static AdmissionStatus initialStatus() {
+        AdmissionStatus status = new AdmissionStatus();
+        status.setState("ACCEPTING");
+        status.setReasons(List.of());
+        status.setSince(LocalDateTime.now());
+        return status;
+    }
+}
@@ -0,0 +1,71 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.QueueConfig;
+import com.video.transcoding.dto.SegmentWorkItem;
+import com.video.transcoding.dto.TranscodingRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.annotation.KafkaHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+// Bulk lane. Its own listener threads keep large imports from delaying interactive uploads; a job whose
+// tenant is already running its weighted share waits video.queue.defer-millis with only its own partition paused.
+@KafkaListener(
+    id = BulkTranscodingConsumer.LISTENER_ID,
+    topics = "${video.queue.bulk-topic:video-transcoding-bulk}",
+    groupId = "video-transcoding-bulk-group",
+    containerFactory = "bulkListenerContainerFactory"
+)
+public class BulkTranscodingConsumer {
+    public static final String LISTENER_ID = "bulk-transcoding";
+
+    private final TranscodingService transcodingService;
+    private final TenantShareService tenantShareService;
+    private final QueueConfig queueConfig;
+    private final PartitionDeferrer partitionDeferrer;
+
+    @KafkaHandler
+    public void consume(TranscodingRequest request,
+                        @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                        @Header(KafkaHeaders.RECEIVED_PARTITION_ID) int partition,
+                        @Header(KafkaHeaders.OFFSET) long offset,
+                        Consumer<?, ?> consumer,
+                        Acknowledgment acknowledgment) {
+        String tenantId = request.getTenantId() != null ? request.getTenantId() : request.getUserId();
+        if (!tenantShareService.tryAcquireBulk(tenantId, request.getVideoId())) {
+            // Other partitions, and so other tenants, keep flowing on this consumer meanwhile
+            log.debug("Tenant {} is at its bulk share, deferring video: {}", tenantId, request.getVideoId());
+            partitionDeferrer.defer(LISTENER_ID, new TopicPartition(topic, partition), offset, consumer, queueConfig.getDeferMillis());
+            return;
+        }
+
+        log.info("Received bulk transcoding request for video: {}", request.getVideoId());
+        try {
+            transcodingService.processVideo(request);
+        } finally {
+            tenantShareService.releaseBulk(tenantId, request.getVideoId());
+            acknowledgment.acknowledge();
+        }
+    }
+
+    // Segments belong to a job that was already admitted
+    @KafkaHandler
+    public void consumeSegment(SegmentWorkItem item, Acknowledgment acknowledgment) {
+        log.info("Received bulk segment {}/{} ({}) of video: {}",
+            item.getSegmentIndex() + 1, item.getSegmentCount(), item.getQuality(), item.getVideoId());
+        try {
+            transcodingService.processSegment(item);
+        } finally {
+            acknowledgment.acknowledge();
+        }
+    }
+}
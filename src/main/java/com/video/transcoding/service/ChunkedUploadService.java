@@ -0,0 +1,264 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.UploadConfig;
+import com.video.transcoding.config.VideoProcessingConfig;
+import com.video.transcoding.dto.CreateUploadSessionRequest;
+import com.video.transcoding.dto.TranscodingRequest;
+import com.video.transcoding.dto.UploadSessionStatus;
+import com.video.transcoding.model.UploadSession;
+import com.video.transcoding.repository.UploadSessionRepository;
+import io.minio.ComposeObjectArgs;
+import io.minio.ComposeSource;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChunkedUploadService {
+    // Chunks are stitched together with MinIO compose, which needs every source but the last to be this large
+    private static final long MIN_COMPOSE_SOURCE_SIZE = 5L * 1024 * 1024;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final MongoTemplate mongoTemplate;
+    private final MinioClient minioClient;
+    private final UploadConfig uploadConfig;
+    private final VideoProcessingConfig videoProcessingConfig;
+    private final TranscodingRequestPublisher transcodingRequestPublisher;
+
+    public UploadSessionStatus createSession(CreateUploadSessionRequest request, String userId) {
+        String fileName = request.getFileName();
+        if (fileName == null || !fileName.contains(".")) {
+            throw new IllegalArgumentException("File name must have an extension");
+        }
+        if (request.getTotalSize() <= 0 || request.getTotalSize() > uploadConfig.getMaxFileSize()) {
+            throw new IllegalArgumentException("Invalid file size: " + request.getTotalSize());
+        }
+        UploadConfig.Chunked chunked = uploadConfig.getChunked();
+        long chunkSize = request.getChunkSize() > 0 ? request.getChunkSize() : chunked.getDefaultChunkSize();
+        long minChunkSize = Math.max(chunked.getMinChunkSize(), MIN_COMPOSE_SOURCE_SIZE);
+        if (chunkSize < minChunkSize || chunkSize > chunked.getMaxChunkSize()) {
+            throw new IllegalArgumentException("Chunk size must be between " + minChunkSize
+                + " and " + chunked.getMaxChunkSize() + " bytes");
+        }
+
+        String videoId = UUID.randomUUID().toString();
+        String extension = fileName.substring(fileName.lastIndexOf("."));
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setType("CHUNKED");
+        session.setVideoId(videoId);
+        session.setUserId(userId);
+        session.setOriginalFileName(fileName);
+        session.setExtension(extension);
+        session.setSourceObjectName(videoId + "/source/original" + extension);
+        session.setTotalSize(request.getTotalSize());
+        session.setChunkSize(chunkSize);
+        session.setChunkCount((int) ((request.getTotalSize() + chunkSize - 1) / chunkSize));
+        session.setStatus("OPEN");
+        session.setCreatedAt(LocalDateTime.now());
+        session.setUpdatedAt(LocalDateTime.now());
+        session.setExpiresAt(LocalDateTime.now().plusHours(chunked.getSessionTtlHours()));
+
+        return toStatus(uploadSessionRepository.save(session));
+    }
+
+    // Chunks may arrive in any order, in parallel and on any replica; each one becomes its own MinIO object,
+    // so no chunk depends on which pod's local disk received the others
+    public void writeChunk(String sessionId, String userId, long offset, long contentLength, InputStream body) throws Exception {
+        UploadSession session = findOpenSession(sessionId, userId);
+        if (offset < 0 || offset >= session.getTotalSize() || offset % session.getChunkSize() != 0) {
+            throw new IllegalArgumentException("Offset must be a multiple of the chunk size within the file");
+        }
+        int index = (int) (offset / session.getChunkSize());
+        long expected = Math.min(session.getChunkSize(), session.getTotalSize() - offset);
+        if (contentLength >= 0 && contentLength != expected) {
+            throw new IllegalArgumentException("Chunk " + index + " must be " + expected + " bytes, got " + contentLength);
+        }
+
+        // A short body fails the put, so the chunk is not recorded and the client sees the range as missing
+        String chunkObject = chunkObject(session, index);
+        minioClient.putObject(
+            PutObjectArgs.builder()
+                .bucket(videoProcessingConfig.getTempDir())
+                .object(chunkObject)
+                .stream(body, expected, -1)
+                .build()
+        );
+        if (body.read() != -1) {
+            removeObject(chunkObject);
+            throw new IllegalArgumentException("Chunk " + index + " is larger than " + expected + " bytes");
+        }
+
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(sessionId)),
+            new Update().addToSet("receivedChunks", index).set("updatedAt", LocalDateTime.now()),
+            UploadSession.class
+        );
+    }
+
+    public UploadSessionStatus getStatus(String sessionId, String userId) {
+        return toStatus(findSession(sessionId, userId));
+    }
+
+    public String complete(String sessionId, String userId) throws Exception {
+        UploadSession session = findOpenSession(sessionId, userId);
+        if (session.getReceivedChunks().size() < session.getChunkCount()) {
+            throw new IllegalStateException("Upload is missing " +
+                (session.getChunkCount() - session.getReceivedChunks().size()) + " chunks");
+        }
+
+        // Stitched inside MinIO; a retried finalize just composes the same chunks again
+        List<ComposeSource> sources = new ArrayList<>();
+        for (int i = 0; i < session.getChunkCount(); i++) {
+            sources.add(ComposeSource.builder()
+                .bucket(videoProcessingConfig.getTempDir())
+                .object(chunkObject(session, i))
+                .build());
+        }
+        minioClient.composeObject(
+            ComposeObjectArgs.builder()
+                .bucket(videoProcessingConfig.getTempDir())
+                .object(session.getSourceObjectName())
+                .sources(sources)
+                .build()
+        );
+
+        // Only the call that flips OPEN -> COMPLETED enqueues, so a retried finalize can't transcode twice
+        UploadSession completed = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(sessionId).and("status").is("OPEN")),
+            new Update().set("status", "COMPLETED").set("updatedAt", LocalDateTime.now()),
+            FindAndModifyOptions.options().returnNew(true),
+            UploadSession.class
+        );
+        if (completed == null) {
+            return session.getVideoId();
+        }
+        removeChunks(completed);
+
+        // Like a direct upload, the transcoder fetches the source from MinIO, whichever node it runs on
+        TranscodingRequest request = new TranscodingRequest();
+        request.setVideoId(completed.getVideoId());
+        request.setUserId(completed.getUserId());
+        request.setOriginalFileName(completed.getOriginalFileName());
+        request.setExtension(completed.getExtension());
+        request.setSourceObjectName(completed.getSourceObjectName());
+        request.setSourceSize(completed.getTotalSize());
+        transcodingRequestPublisher.publish(request);
+
+        return completed.getVideoId();
+    }
+
+    @Scheduled(fixedRate = 3600000)
+    public void removeExpiredSessions() {
+        for (UploadSession session : uploadSessionRepository.findByTypeAndStatusAndExpiresAtBefore("CHUNKED", "OPEN", LocalDateTime.now())) {
+            try {
+                if (session.getFilePath() != null) {
+                    // Sessions opened before chunks went to MinIO
+                    Files.deleteIfExists(Path.of(session.getFilePath()));
+                }
+                removeChunks(session);
+                uploadSessionRepository.delete(session);
+                log.info("Removed expired upload session: {}", session.getId());
+            } catch (Exception e) {
+                log.error("Error removing upload session: {}", session.getId(), e);
+            }
+        }
+    }
+
+    private void removeChunks(UploadSession session) throws Exception {
+        if (session.getSourceObjectName() == null) {
+            return;
+        }
+        for (Integer index : session.getReceivedChunks()) {
+            removeObject(chunkObject(session, index));
+        }
+    }
+
+    private void removeObject(String objectName) throws Exception {
+        minioClient.removeObject(
+            RemoveObjectArgs.builder()
+                .bucket(videoProcessingConfig.getTempDir())
+                .object(objectName)
+                .build()
+        );
+    }
+
+    // Under the video's own prefix, next to the source they are composed into
+    private String chunkObject(UploadSession session, int index) {
+        return session.getVideoId() + "/source/chunks/chunk-" + index;
+    }
+
+    private UploadSession findSession(String sessionId, String userId) {
+        UploadSession session = uploadSessionRepository.findById(sessionId)
+            .orElseThrow(() -> new IllegalArgumentException("Upload session not found"));
+        if (!"CHUNKED".equals(session.getType()) || !session.getUserId().equals(userId)) {
+            throw new IllegalArgumentException("Upload session not found");
+        }
+        return session;
+    }
+
+    private UploadSession findOpenSession(String sessionId, String userId) {
+        UploadSession session = findSession(sessionId, userId);
+        if (!"OPEN".equals(session.getStatus())) {
+            throw new IllegalStateException("Upload session is " + session.getStatus());
+        }
+        return session;
+    }
+
+    private UploadSessionStatus toStatus(UploadSession session) {
+        Set<Integer> received = new HashSet<>(session.getReceivedChunks());
+        List<UploadSessionStatus.ByteRange> missing = new ArrayList<>();
+        long receivedBytes = 0;
+
+        // Consecutive missing chunks are merged into one range
+        UploadSessionStatus.ByteRange current = null;
+        for (int i = 0; i < session.getChunkCount(); i++) {
+            long start = i * session.getChunkSize();
+            long end = Math.min(start + session.getChunkSize(), session.getTotalSize());
+            if (received.contains(i)) {
+                receivedBytes += end - start;
+                current = null;
+            } else if (current != null) {
+                current.setEnd(end);
+            } else {
+                current = new UploadSessionStatus.ByteRange();
+                current.setStart(start);
+                current.setEnd(end);
+                missing.add(current);
+            }
+        }
+
+        UploadSessionStatus status = new UploadSessionStatus();
+        status.setSessionId(session.getId());
+        status.setVideoId(session.getVideoId());
+        status.setStatus(session.getStatus());
+        status.setTotalSize(session.getTotalSize());
+        status.setChunkSize(session.getChunkSize());
+        status.setChunkCount(session.getChunkCount());
+        status.setReceivedBytes(receivedBytes);
+        status.setMissingRanges(missing);
+        return status;
+    }
+}
@@ -0,0 +1,154 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.UploadConfig;
+import com.video.transcoding.config.VideoProcessingConfig;
+import com.video.transcoding.dto.CreateUploadSessionRequest;
+import com.video.transcoding.dto.DirectUploadSession;
+import com.video.transcoding.dto.TranscodingRequest;
+import com.video.transcoding.model.UploadSession;
+import com.video.transcoding.repository.UploadSessionRepository;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.http.Method;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DirectUploadService {
+    private final UploadSessionRepository uploadSessionRepository;
+    private final MongoTemplate mongoTemplate;
+    private final MinioClient minioClient;
+    private final UploadConfig uploadConfig;
+    private final VideoProcessingConfig videoProcessingConfig;
+    private final TranscodingRequestPublisher transcodingRequestPublisher;
+
+    public DirectUploadSession createSession(CreateUploadSessionRequest request, String userId) throws Exception {
+        String fileName = request.getFileName();
+        if (fileName == null || !fileName.contains(".")) {
+            throw new IllegalArgumentException("File name must have an extension");
+        }
+        if (request.getTotalSize() <= 0 || request.getTotalSize() > uploadConfig.getMaxFileSize()) {
+            throw new IllegalArgumentException("Invalid file size: " + request.getTotalSize());
+        }
+
+        String videoId = UUID.randomUUID().toString();
+        String extension = fileName.substring(fileName.lastIndexOf("."));
+        String objectName = videoId + "/source/original" + extension;
+
+        UploadConfig.Direct direct = uploadConfig.getDirect();
+        String uploadUrl = minioClient.getPresignedObjectUrl(
+            GetPresignedObjectUrlArgs.builder()
+                .bucket(videoProcessingConfig.getTempDir())
+                .object(objectName)
+                .method(Method.PUT)
+                .expiry(direct.getUrlExpiryMinutes(), TimeUnit.MINUTES)
+                .build()
+        );
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setType("DIRECT");
+        session.setVideoId(videoId);
+        session.setUserId(userId);
+        session.setOriginalFileName(fileName);
+        session.setExtension(extension);
+        session.setSourceObjectName(objectName);
+        session.setTotalSize(request.getTotalSize());
+        session.setStatus("OPEN");
+        session.setCreatedAt(LocalDateTime.now());
+        session.setUpdatedAt(LocalDateTime.now());
+        session.setExpiresAt(LocalDateTime.now().plusHours(direct.getSessionTtlHours()));
+        uploadSessionRepository.save(session);
+
+        DirectUploadSession response = new DirectUploadSession();
+        response.setSessionId(session.getId());
+        response.setVideoId(videoId);
+        response.setObjectName(objectName);
+        response.setUploadUrl(uploadUrl);
+        response.setExpiresAt(LocalDateTime.now().plusMinutes(direct.getUrlExpiryMinutes()));
+        return response;
+    }
+
+    // Called by the client once its PUT succeeded; the transcoder fetches the source from MinIO itself
+    public String complete(String sessionId, String userId) throws Exception {
+        UploadSession session = uploadSessionRepository.findById(sessionId)
+            .filter(s -> "DIRECT".equals(s.getType()) && s.getUserId().equals(userId))
+            .orElseThrow(() -> new IllegalArgumentException("Upload session not found"));
+        if (!"OPEN".equals(session.getStatus())) {
+            return session.getVideoId();
+        }
+
+        StatObjectResponse stat;
+        try {
+            stat = minioClient.statObject(
+                StatObjectArgs.builder()
+                    .bucket(videoProcessingConfig.getTempDir())
+                    .object(session.getSourceObjectName())
+                    .build()
+            );
+        } catch (ErrorResponseException e) {
+            throw new IllegalStateException("Source object has not been uploaded yet");
+        }
+        if (stat.size() != session.getTotalSize()) {
+            throw new IllegalStateException("Uploaded object is " + stat.size() + " bytes, expected " + session.getTotalSize());
+        }
+
+        // Only the call that flips OPEN -> COMPLETED enqueues, so a retried finalize can't transcode twice
+        UploadSession completed = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(sessionId).and("status").is("OPEN")),
+            new Update().set("status", "COMPLETED").set("updatedAt", LocalDateTime.now()),
+            FindAndModifyOptions.options().returnNew(true),
+            UploadSession.class
+        );
+        if (completed == null) {
+            return session.getVideoId();
+        }
+
+        TranscodingRequest request = new TranscodingRequest();
+        request.setVideoId(completed.getVideoId());
+        request.setUserId(completed.getUserId());
+        request.setOriginalFileName(completed.getOriginalFileName());
+        request.setExtension(completed.getExtension());
+        request.setSourceObjectName(completed.getSourceObjectName());
+        request.setSourceSize(completed.getTotalSize());
+        transcodingRequestPublisher.publish(request);
+
+        return completed.getVideoId();
+    }
+
+    @Scheduled(fixedRate = 3600000)
+    public void removeExpiredSessions() {
+        for (UploadSession session : uploadSessionRepository.findByTypeAndStatusAndExpiresAtBefore("DIRECT", "OPEN", LocalDateTime.now())) {
+            try {
+                // Drops a PUT that landed but was never finalized
+                minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                        .bucket(videoProcessingConfig.getTempDir())
+                        .object(session.getSourceObjectName())
+                        .build()
+                );
+                uploadSessionRepository.delete(session);
+                log.info("Removed expired direct upload session: {}", session.getId());
+            } catch (Exception e) {
+                log.error("Error removing direct upload session: {}", session.getId(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.video.transcoding.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.video.transcoding.config.VideoProcessingConfig;
+import com.video.transcoding.model.Video;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FfmpegService {
+    // Stretch of a remote rendition read for its keyframe spacing; the GOP is fixed, so the start is representative
+    private static final int REMOTE_KEYFRAME_SAMPLE_SECONDS = 60;
+
+    private final TranscodingScheduler transcodingScheduler;
+    private final VideoProcessingConfig videoProcessingConfig;
+    private final ObjectMapper objectMapper;
+
+    public interface ProgressListener {
+        // outTimeMicros is the media time encoded so far; speed is FFmpeg's realtime factor, 0 when unknown
+        void onProgress(long outTimeMicros, double speed);
+    }
+
+    public List<String> encoderArgs(VideoProcessingConfig.Quality quality) {
+        List<String> args = new ArrayList<>(List.of(
+            "-c:v", "libx264",
+            "-threads", String.valueOf(transcodingScheduler.threadsFor(quality)),
+            "-preset", quality.getPreset(),
+            "-crf", String.valueOf(quality.getCrf()),
+            "-b:v", quality.getBitrate()
+        ));
+        args.addAll(audioArgs());
+        return args;
+    }
+
+    public List<String> audioArgs() {
+        VideoProcessingConfig.Audio audio = videoProcessingConfig.getAudio();
+        return List.of("-c:a", "aac", "-b:a", String.valueOf(audio.getBitrate()),
+            "-ar", String.valueOf(audio.getSampleRate()), "-ac", String.valueOf(audio.getChannels()));
+    }
+
+    public void run(List<String> command) throws Exception {
+        run(command, null);
+    }
+
+    public void run(List<String> command, ProgressListener listener) throws Exception {
+        Process process = start(command, listener, ProcessBuilder.Redirect.DISCARD);
+        int exitCode = process.waitFor();
+
+        if (exitCode != 0) {
+            throw new Exception("FFmpeg process failed with exit code: " + exitCode);
+        }
+    }
+
+    // Starts FFmpeg with stdout sent to the given redirect; stderr is drained, and parsed for progress when a listener is given
+    public Process start(List<String> command, ProgressListener listener, ProcessBuilder.Redirect output) throws IOException {
+        List<String> args = command;
+        if (listener != null) {
+            // Machine-readable key=value blocks on stderr instead of the interactive status line
+            args = new ArrayList<>(command);
+            args.addAll(1, List.of("-progress", "pipe:2", "-nostats", "-loglevel", "error"));
+        }
+        log.info("Executing FFmpeg command: {}", String.join(" ", args));
+
+        ProcessBuilder builder = new ProcessBuilder(args).redirectOutput(output);
+        if (listener == null) {
+            // FFmpeg logs heavily to stderr; discard it so a full pipe never stalls the encoder
+            builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        }
+        Process process = builder.start();
+        if (listener != null) {
+            Thread reader = new Thread(() -> readProgress(process.getErrorStream(), listener), "ffmpeg-progress");
+            reader.setDaemon(true);
+            reader.start();
+        }
+        return process;
+    }
+
+    public Video.SourceInfo probe(Path source) throws Exception {
+        return probe(source.toString(), source.getFileName().toString());
+    }
+
+    private Video.SourceInfo probe(String input, String label) throws Exception {
+        List<String> command = List.of(
+            "ffprobe", "-v", "error",
+            "-show_entries", "format=duration,bit_rate"
+                + ":stream=codec_type,codec_name,pix_fmt,width,height,avg_frame_rate"
+                + ":stream_tags=rotate:stream_side_data=rotation:stream_disposition=attached_pic",
+            "-of", "json",
+            input
+        );
+        Process process = new ProcessBuilder(command)
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        JsonNode root;
+        try (InputStream stdout = process.getInputStream()) {
+            root = objectMapper.readTree(stdout);
+        }
+        if (process.waitFor() != 0) {
+            throw new IllegalArgumentException("ffprobe could not read source: " + label);
+        }
+
+        Video.SourceInfo info = new Video.SourceInfo();
+        info.setDurationSeconds(root.path("format").path("duration").asDouble());
+        info.setBitRate(root.path("format").path("bit_rate").asLong());
+        for (JsonNode stream : root.path("streams")) {
+            String type = stream.path("codec_type").asText();
+            // Cover art shows up as a one-frame video stream
+            boolean coverArt = stream.path("disposition").path("attached_pic").asInt() == 1;
+            if ("video".equals(type) && !coverArt && info.getVideoCodec() == null) {
+                info.setVideoCodec(stream.path("codec_name").asText());
+                info.setPixelFormat(stream.path("pix_fmt").asText());
+                info.setFrameRate(parseRate(stream.path("avg_frame_rate").asText()));
+                int rotation = stream.path("tags").path("rotate").asInt();
+                for (JsonNode sideData : stream.path("side_data_list")) {
+                    if (sideData.has("rotation")) {
+                        rotation = sideData.path("rotation").asInt();
+                    }
+                }
+                // Phone clips are stored landscape with a rotation flag; FFmpeg autorotates, so use the displayed size
+                boolean quarterTurn = Math.abs(rotation) % 180 == 90;
+                info.setWidth(quarterTurn ? stream.path("height").asInt() : stream.path("width").asInt());
+                info.setHeight(quarterTurn ? stream.path("width").asInt() : stream.path("height").asInt());
+            } else if ("audio".equals(type) && info.getAudioCodec() == null) {
+                info.setAudioCodec(stream.path("codec_name").asText());
+            }
+        }
+        if (info.getVideoCodec() == null) {
+            throw new IllegalArgumentException("Source has no video stream: " + label);
+        }
+        return info;
+    }
+
+    // Probes a rendition that was just written locally; objects are what was uploaded for it
+    public Video.RenditionManifest describeRendition(Path media, List<Video.ManifestObject> objects) throws Exception {
+        return describeRendition(media.toString(), media.getFileName().toString(), objects, null);
+    }
+
+    // Same for a rendition that only exists in MinIO, read through a presigned URL. Keyframes are sampled from the
+    // start only, so the probe fetches the index and a bounded range instead of the whole object
+    public Video.RenditionManifest describeRemoteRendition(String url, String objectName, List<Video.ManifestObject> objects) throws Exception {
+        return describeRendition(url, objectName, objects, "%+" + REMOTE_KEYFRAME_SAMPLE_SECONDS);
+    }
+
+    private Video.RenditionManifest describeRendition(String input, String label, List<Video.ManifestObject> objects,
+                                                      String readIntervals) throws Exception {
+        Video.SourceInfo info = probe(input, label);
+        Video.RenditionManifest manifest = new Video.RenditionManifest();
+        manifest.setWidth(info.getWidth());
+        manifest.setHeight(info.getHeight());
+        manifest.setVideoCodec(info.getVideoCodec());
+        manifest.setAudioCodec(info.getAudioCodec());
+        manifest.setCodecs(codecs(input));
+        manifest.setDurationSeconds(info.getDurationSeconds());
+        manifest.setKeyframeIntervalSeconds(keyframeInterval(input, readIntervals));
+        manifest.setObjects(new ArrayList<>(objects));
+        manifest.setSize(objects.stream().mapToLong(Video.ManifestObject::getSize).sum());
+        return manifest;
+    }
+
+    // Players use it to skip renditions they can't decode without fetching them; only H.264 and AAC are mapped
+    private String codecs(String input) throws Exception {
+        List<String> command = List.of(
+            "ffprobe", "-v", "error",
+            "-show_entries", "stream=codec_type,codec_name,profile,level",
+            "-of", "json",
+            input
+        );
+        Process process = new ProcessBuilder(command)
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        JsonNode root;
+        try (InputStream stdout = process.getInputStream()) {
+            root = objectMapper.readTree(stdout);
+        }
+        if (process.waitFor() != 0) {
+            return null;
+        }
+
+        String video = null;
+        String audio = null;
+        boolean hasAudio = false;
+        for (JsonNode stream : root.path("streams")) {
+            String type = stream.path("codec_type").asText();
+            if ("video".equals(type) && video == null) {
+                video = avcCodec(stream.path("codec_name").asText(), stream.path("profile").asText(), stream.path("level").asInt());
+                if (video == null) {
+                    return null;
+                }
+            } else if ("audio".equals(type) && !hasAudio) {
+                hasAudio = true;
+                audio = aacCodec(stream.path("codec_name").asText(), stream.path("profile").asText());
+            }
+        }
+        // A CODECS attribute that leaves out a stream is worse than none
+        if (video == null || (hasAudio && audio == null)) {
+            return null;
+        }
+        return hasAudio ? video + "," + audio : video;
+    }
+
+    // "High", 40 -> "avc1.640028": profile_idc, constraint flags, level_idc
+    private String avcCodec(String codec, String profile, int level) {
+        if (!"h264".equals(codec) || level <= 0) {
+            return null;
+        }
+        String profileAndConstraints;
+        switch (profile) {
+            case "Baseline":
+            case "Constrained Baseline":
+                profileAndConstraints = "42E0";
+                break;
+            case "Main":
+                profileAndConstraints = "4D40";
+                break;
+            case "High":
+                profileAndConstraints = "6400";
+                break;
+            case "High 10":
+                profileAndConstraints = "6E00";
+                break;
+            case "High 4:2:2":
+                profileAndConstraints = "7A00";
+                break;
+            case "High 4:4:4 Predictive":
+                profileAndConstraints = "F400";
+                break;
+            default:
+                return null;
+        }
+        return String.format("avc1.%s%02X", profileAndConstraints, level);
+    }
+
+    private String aacCodec(String codec, String profile) {
+        if (!"aac".equals(codec)) {
+            return null;
+        }
+        switch (profile) {
+            case "LC":
+                return "mp4a.40.2";
+            case "HE-AAC":
+                return "mp4a.40.5";
+            case "HE-AACv2":
+                return "mp4a.40.29";
+            default:
+                return null;
+        }
+    }
+
+    // Average spacing of video keyframes; reads packet flags only, nothing is decoded
+    private double keyframeInterval(String input, String readIntervals) throws Exception {
+        List<String> command = new ArrayList<>(List.of(
+            "ffprobe", "-v", "error",
+            "-select_streams", "v:0",
+            "-show_entries", "packet=pts_time,flags",
+            "-of", "csv=p=0"
+        ));
+        if (readIntervals != null) {
+            command.addAll(List.of("-read_intervals", readIntervals));
+        }
+        command.add(input);
+        Process process = new ProcessBuilder(command)
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        int keyframes = 0;
+        double first = 0;
+        double last = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // "12.345000,K__"
+                String[] fields = line.split(",");
+                if (fields.length < 2 || fields[1].indexOf('K') < 0) {
+                    continue;
+                }
+                try {
+                    double pts = Double.parseDouble(fields[0]);
+                    if (keyframes == 0) {
+                        first = pts;
+                    }
+                    last = pts;
+                    keyframes++;
+                } catch (NumberFormatException e) {
+                    // N/A timestamps carry no spacing information
+                }
+            }
+        }
+        if (process.waitFor() != 0 || keyframes < 2) {
+            return 0;
+        }
+        return (last - first) / (keyframes - 1);
+    }
+
+    // "30000/1001" -> 29.97
+    private double parseRate(String rate) {
+        String[] parts = rate.split("/");
+        try {
+            double numerator = Double.parseDouble(parts[0]);
+            double denominator = parts.length > 1 ? Double.parseDouble(parts[1]) : 1;
+            return denominator > 0 ? numerator / denominator : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void readProgress(InputStream stderr, ProgressListener listener) {
+        long outTimeMicros = 0;
+        double speed = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stderr, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int equals = line.indexOf('=');
+                if (equals < 0) {
+                    continue;
+                }
+                String key = line.substring(0, equals);
+                String value = line.substring(equals + 1).trim();
+                try {
+                    switch (key) {
+                        // out_time_ms is in microseconds too, despite its name
+                        case "out_time_us":
+                        case "out_time_ms":
+                            outTimeMicros = Math.max(outTimeMicros, Long.parseLong(value));
+                            break;
+                        case "speed":
+                            speed = value.endsWith("x") ? Double.parseDouble(value.substring(0, value.length() - 1)) : 0;
+                            break;
+                        case "progress":
+                            // Closes one block of keys
+                            listener.onProgress(outTimeMicros, speed);
+                            break;
+                        default:
+                            break;
+                    }
+                } catch (NumberFormatException e) {
+                    // N/A before the first frame is out
+                }
+            }
+        } catch (IOException e) {
+            log.debug("FFmpeg progress stream closed", e);
+        }
+    }
+}
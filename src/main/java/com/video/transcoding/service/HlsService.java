@@ -0,0 +1,244 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.VideoProcessingConfig;
+import com.video.transcoding.dto.TranscodingRequest;
+import com.video.transcoding.model.Video;
+import com.video.transcoding.repository.VideoRepository;
+import io.minio.*;
+import io.minio.http.Method;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HlsService {
+    private static final String MASTER_PLAYLIST = "master.m3u8";
+    private static final String MEDIA_PLAYLIST = "index.m3u8";
+    private static final String INIT_SEGMENT = "init.mp4";
+    private static final Pattern URI_ATTRIBUTE = Pattern.compile("URI=\"([^\"]+)\"");
+
+    private final MinioClient minioClient;
+    private final VideoProcessingConfig videoProcessingConfig;
+    private final VideoRepository videoRepository;
+    private final FfmpegService ffmpegService;
+    private final TranscodingScheduler transcodingScheduler;
+    private final RenditionUploader renditionUploader;
+
+    public Video.HlsPackage packageRenditions(TranscodingRequest request, Path source,
+                                              List<VideoProcessingConfig.Quality> ladder,
+                                              Map<String, Video.HlsRendition> finished,
+                                              TranscodingProgress progress,
+                                              Consumer<Video.HlsRendition> onRenditionDone) throws Exception {
+        String videoId = request.getVideoId();
+        int segmentDuration = videoProcessingConfig.getHls().getSegmentDuration();
+        Path packageDir = Path.of(videoProcessingConfig.getTempDir()).resolve(videoId + "_hls");
+        List<CompletableFuture<Video.HlsRendition>> futures = new ArrayList<>();
+
+        try {
+            for (VideoProcessingConfig.Quality quality : ladder) {
+                if (finished.containsKey(quality.getName())) {
+                    // Packaged and uploaded by an earlier attempt
+                    progress.completed(quality.getName());
+                    futures.add(CompletableFuture.completedFuture(finished.get(quality.getName())));
+                    continue;
+                }
+                Path renditionDir = packageDir.resolve(quality.getName());
+                Files.createDirectories(renditionDir);
+                futures.add(transcodingScheduler.submit(transcodingScheduler.threadsFor(quality), () -> {
+                    Video.HlsRendition rendition = packageRendition(videoId, source, renditionDir, quality, segmentDuration,
+                        progress.listener(quality.getName()));
+                    progress.completed(quality.getName());
+                    onRenditionDone.accept(rendition);
+                    return rendition;
+                }));
+            }
+
+            // Let every rendition settle before the package directory is removed
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .handle((v, e) -> null)
+                .get();
+            List<Video.HlsRendition> renditions = new ArrayList<>();
+            for (CompletableFuture<Video.HlsRendition> future : futures) {
+                renditions.add(transcodingScheduler.await(future));
+            }
+
+            // Media playlists sit next to the master, so relative URIs resolve both in MinIO and through the API
+            StringBuilder master = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:7\n#EXT-X-INDEPENDENT-SEGMENTS\n");
+            for (Video.HlsRendition rendition : renditions) {
+                master.append("#EXT-X-STREAM-INF:BANDWIDTH=").append(rendition.getBandwidth());
+                // Lets players pick a rung for their screen and decoder without fetching its media playlist
+                Video.RenditionManifest manifest = rendition.getManifest();
+                if (manifest != null && manifest.getWidth() > 0 && manifest.getHeight() > 0) {
+                    master.append(",RESOLUTION=").append(manifest.getWidth()).append('x').append(manifest.getHeight());
+                }
+                if (manifest != null && manifest.getCodecs() != null) {
+                    master.append(",CODECS=\"").append(manifest.getCodecs()).append('"');
+                }
+                master.append('\n')
+                    .append(rendition.getName()).append('/').append(MEDIA_PLAYLIST).append('\n');
+            }
+            Path masterPath = packageDir.resolve(MASTER_PLAYLIST);
+            Files.writeString(masterPath, master);
+            String masterObject = hlsPrefix(videoId) + MASTER_PLAYLIST;
+            Video.ManifestObject masterPlaylist = renditionUploader.upload(masterPath.toFile(), masterObject, contentType(masterPath));
+
+            Video.HlsPackage hls = new Video.HlsPackage();
+            hls.setMasterPlaylistObject(masterObject);
+            hls.setMasterPlaylist(masterPlaylist);
+            hls.setSegmentDuration(segmentDuration);
+            hls.setRenditions(renditions);
+            return hls;
+        } finally {
+            FileSystemUtils.deleteRecursively(packageDir);
+        }
+    }
+
+    private Video.HlsRendition packageRendition(String videoId, Path source, Path renditionDir,
+                                                VideoProcessingConfig.Quality quality, int segmentDuration,
+                                                FfmpegService.ProgressListener listener) throws Exception {
+        List<String> command = new ArrayList<>(List.of(
+            "ffmpeg", "-y", "-nostdin", "-i", source.toString(),
+            "-vf", "scale=-2:" + quality.getHeight()
+        ));
+        command.addAll(ffmpegService.encoderArgs(quality));
+        command.addAll(List.of(
+            // The same forced keyframe grid in every rendition keeps segment boundaries aligned for ABR switches
+            "-force_key_frames", "expr:gte(t,n_forced*" + segmentDuration + ")",
+            "-sc_threshold", "0",
+            "-f", "hls",
+            "-hls_time", String.valueOf(segmentDuration),
+            "-hls_playlist_type", "vod",
+            "-hls_segment_type", "fmp4",
+            "-hls_flags", "independent_segments",
+            "-hls_fmp4_init_filename", INIT_SEGMENT,
+            "-hls_segment_filename", renditionDir.resolve("seg_%05d.m4s").toString(),
+            renditionDir.resolve(MEDIA_PLAYLIST).toString()
+        ));
+        ffmpegService.run(command, listener);
+
+        // Playlist goes up last so it never references a segment that isn't in MinIO yet
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(renditionDir)) {
+            files = listing
+                .sorted(Comparator.comparing((Path file) -> file.toString().endsWith(".m3u8")).thenComparing(Path::toString))
+                .collect(Collectors.toList());
+        }
+        String prefix = hlsPrefix(videoId) + quality.getName() + "/";
+        int segmentCount = 0;
+        List<Video.ManifestObject> objects = new ArrayList<>();
+        for (Path file : files) {
+            objects.add(renditionUploader.upload(file.toFile(), prefix + file.getFileName(), contentType(file)));
+            if (file.toString().endsWith(".m4s")) {
+                segmentCount++;
+            }
+        }
+
+        Video.HlsRendition rendition = new Video.HlsRendition();
+        rendition.setName(quality.getName());
+        rendition.setBandwidth(quality.bitrateBps() + videoProcessingConfig.getAudio().getBitrate());
+        rendition.setPlaylistObject(prefix + MEDIA_PLAYLIST);
+        rendition.setInitSegmentObject(prefix + INIT_SEGMENT);
+        rendition.setSegmentCount(segmentCount);
+        // Probed through the local media playlist, before the package directory goes away
+        rendition.setManifest(ffmpegService.describeRendition(renditionDir.resolve(MEDIA_PLAYLIST), objects));
+        return rendition;
+    }
+
+    // Missing video, package or quality; anything else thrown while serving a playlist is a server error
+    public static class HlsNotFoundException extends RuntimeException {
+        public HlsNotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    public String getMasterPlaylist(String videoId) throws Exception {
+        return readObject(findPackage(videoId).getMasterPlaylistObject());
+    }
+
+    // Segment and init URIs are swapped for presigned URLs so players can fetch them from a private bucket
+    public String getMediaPlaylist(String videoId, String quality) throws Exception {
+        Video.HlsRendition rendition = findPackage(videoId).getRenditions().stream()
+            .filter(r -> r.getName().equals(quality))
+            .findFirst()
+            .orElseThrow(() -> new HlsNotFoundException("Quality not found"));
+        String prefix = rendition.getPlaylistObject().substring(0, rendition.getPlaylistObject().lastIndexOf('/') + 1);
+
+        StringBuilder playlist = new StringBuilder();
+        for (String line : readObject(rendition.getPlaylistObject()).split("\n")) {
+            if (line.startsWith("#EXT-X-MAP:")) {
+                Matcher matcher = URI_ATTRIBUTE.matcher(line);
+                if (matcher.find()) {
+                    line = line.substring(0, matcher.start(1)) + presign(prefix + matcher.group(1)) + line.substring(matcher.end(1));
+                }
+            } else if (!line.isBlank() && !line.startsWith("#")) {
+                line = presign(prefix + line.trim());
+            }
+            playlist.append(line).append('\n');
+        }
+        return playlist.toString();
+    }
+
+    public Video.HlsPackage findPackage(String videoId) {
+        Video video = videoRepository.findById(videoId)
+            .orElseThrow(() -> new HlsNotFoundException("Video not found"));
+        if (video.getHls() == null) {
+            throw new HlsNotFoundException("HLS package not found");
+        }
+        return video.getHls();
+    }
+
+    private String readObject(String objectName) throws Exception {
+        try (InputStream inputStream = minioClient.getObject(
+                GetObjectArgs.builder()
+                    .bucket(videoProcessingConfig.getTempDir())
+                    .object(objectName)
+                    .build())) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private String presign(String objectName) throws Exception {
+        return minioClient.getPresignedObjectUrl(
+            GetPresignedObjectUrlArgs.builder()
+                .bucket(videoProcessingConfig.getTempDir())
+                .object(objectName)
+                .method(Method.GET)
+                .expiry(7, TimeUnit.DAYS)
+                .build()
+        );
+    }
+
+    private String hlsPrefix(String videoId) {
+        return videoId + "/hls/";
+    }
+
+    private String contentType(Path file) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".m3u8")) {
+            return "application/vnd.apple.mpegurl";
+        }
+        if (name.endsWith(".m4s")) {
+            return "video/iso.segment";
+        }
+        return "video/mp4";
+    }
+}
@@ -0,0 +1,133 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.dto.TranscodingRequest;
+import com.video.transcoding.model.TranscodingJob;
+import com.video.transcoding.model.Video;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JobCheckpointService {
+    private final MongoTemplate mongoTemplate;
+    private final TranscodingRequestPublisher transcodingRequestPublisher;
+
+    // Creates the checkpoint on the first attempt and returns what earlier attempts left behind
+    public TranscodingJob start(TranscodingRequest request) {
+        Update update = new Update()
+            .setOnInsert("userId", request.getUserId())
+            .setOnInsert("originalFileName", request.getOriginalFileName())
+            .setOnInsert("extension", request.getExtension())
+            .setOnInsert("tenantId", request.getTenantId())
+            .setOnInsert("priority", request.getPriority())
+            .setOnInsert("sourceSize", request.getSourceSize())
+            .setOnInsert("createdAt", LocalDateTime.now())
+            .inc("attempts", 1)
+            .set("updatedAt", LocalDateTime.now());
+        if (request.getSourceObjectName() != null) {
+            update.set("sourceObjectName", request.getSourceObjectName());
+        }
+
+        TranscodingJob job = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(request.getVideoId())),
+            update,
+            FindAndModifyOptions.options().upsert(true).returnNew(true),
+            TranscodingJob.class
+        );
+        // Finished and fleet-owned jobs keep their status, so the caller can skip a redelivered request
+        if (!"COMPLETED".equals(job.getStatus()) && !"DISTRIBUTED".equals(job.getStatus())) {
+            setStatus(request.getVideoId(), "RUNNING", null);
+            job.setStatus("RUNNING");
+        }
+        if (job.getAttempts() > 1) {
+            log.info("Resuming video {} (attempt {}, {} renditions already done)",
+                job.getId(), job.getAttempts(), job.getRenditions().size());
+        }
+        return job;
+    }
+
+    public void sourcePersisted(String videoId, String contentHash, String objectName) {
+        update(videoId, new Update().set("contentHash", contentHash).set("sourceObjectName", objectName));
+    }
+
+    public void renditionDone(String videoId, String quality, String objectName, boolean remuxed,
+                              Video.RenditionManifest manifest, Video.HlsRendition hls) {
+        TranscodingJob.RenditionState state = new TranscodingJob.RenditionState();
+        state.setObjectName(objectName);
+        state.setRemuxed(remuxed);
+        state.setManifest(manifest);
+        state.setHls(hls);
+        state.setCompletedAt(LocalDateTime.now());
+        update(videoId, new Update().set("renditions." + quality, state));
+    }
+
+    public void complete(String videoId) {
+        setStatus(videoId, "COMPLETED", null);
+    }
+
+    public void distributed(String videoId) {
+        setStatus(videoId, "DISTRIBUTED", null);
+    }
+
+    // Waiting on a retry topic; the error of the failed attempt stays visible until the retry runs
+    public void retrying(String videoId, Exception e) {
+        setStatus(videoId, "RETRYING", e.getMessage());
+    }
+
+    // Finished renditions are kept, so a resume only redoes what is missing
+    public void fail(String videoId, Exception e) {
+        setStatus(videoId, "FAILED", e.getMessage());
+    }
+
+    public TranscodingJob getJob(String videoId) {
+        TranscodingJob job = mongoTemplate.findById(videoId, TranscodingJob.class);
+        if (job == null) {
+            throw new IllegalArgumentException("Transcoding job not found");
+        }
+        return job;
+    }
+
+    // Re-queues a failed job; the consumer fetches the persisted source and skips finished renditions
+    public void resume(String videoId) {
+        TranscodingJob job = getJob(videoId);
+        if (!"FAILED".equals(job.getStatus())) {
+            throw new IllegalStateException("Only failed jobs can be resumed, job is " + job.getStatus());
+        }
+        if (job.getSourceObjectName() == null) {
+            throw new IllegalStateException("Source of video " + videoId + " was not persisted");
+        }
+
+        TranscodingRequest request = new TranscodingRequest();
+        request.setVideoId(job.getId());
+        request.setUserId(job.getUserId());
+        request.setOriginalFileName(job.getOriginalFileName());
+        request.setExtension(job.getExtension());
+        request.setSourceObjectName(job.getSourceObjectName());
+        request.setContentHash(job.getContentHash());
+        request.setSourceSize(job.getSourceSize());
+        request.setTenantId(job.getTenantId());
+        request.setPriority(job.getPriority());
+        transcodingRequestPublisher.publish(request);
+    }
+
+    private void setStatus(String videoId, String status, String errorMessage) {
+        update(videoId, new Update().set("status", status).set("errorMessage", errorMessage));
+    }
+
+    private void update(String videoId, Update update) {
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(videoId)),
+            update.set("updatedAt", LocalDateTime.now()),
+            TranscodingJob.class
+        );
+    }
+}
@@ -0,0 +1,96 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.ReplicationConfig;
+import com.video.transcoding.model.Organization;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+// Paces replication traffic per target organization so transfers never take more than the link budget
+@Service
+@RequiredArgsConstructor
+public class LinkBudgetService {
+    private final ReplicationConfig replicationConfig;
+    // Every stream to an organization shares its pacer, so parallel parts split the budget instead of multiplying it
+    private final Map<Organization, Pacer> pacers = new ConcurrentHashMap<>();
+
+    public boolean inOffPeak(Organization target) {
+        String window = replicationConfig.linkFor(target).getOffPeakWindow();
+        if (window == null || window.isBlank()) {
+            return false;
+        }
+        String[] bounds = window.split("-");
+        LocalTime start = LocalTime.parse(bounds[0].trim());
+        LocalTime end = LocalTime.parse(bounds[1].trim());
+        LocalTime now = LocalTime.now();
+        // "22:00-06:00" wraps past midnight
+        return start.isBefore(end)
+            ? !now.isBefore(start) && now.isBefore(end)
+            : !now.isBefore(start) || now.isBefore(end);
+    }
+
+    // Current budget in bytes per second, 0 = unlimited
+    public long bytesPerSecond(Organization target) {
+        ReplicationConfig.Link link = replicationConfig.linkFor(target);
+        if (link.getOffPeakBytesPerSecond() > 0 && inOffPeak(target)) {
+            return link.getOffPeakBytesPerSecond();
+        }
+        return link.getBytesPerSecond();
+    }
+
+    // Reads through the budget; sent is told about every chunk once it has been let through
+    public InputStream throttle(Organization target, InputStream inputStream, LongConsumer sent) {
+        Pacer pacer = pacers.computeIfAbsent(target, org -> new Pacer());
+        return new FilterInputStream(inputStream) {
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    pacer.pace(read, bytesPerSecond(target));
+                    sent.accept(read);
+                }
+                return read;
+            }
+        };
+    }
+
+    private static class Pacer {
+        private long nextFreeNanos;
+
+        void pace(long bytes, long bytesPerSecond) throws IOException {
+            if (bytesPerSecond <= 0) {
+                return;
+            }
+            long waitNanos;
+            synchronized (this) {
+                // Each chunk books the next stretch of link time; idle time is not saved up, so there are no bursts
+                long now = System.nanoTime();
+                long start = Math.max(now, nextFreeNanos);
+                nextFreeNanos = start + bytes * 1_000_000_000L / bytesPerSecond;
+                waitNanos = start - now;
+            }
+            if (waitNanos > 0) {
+                try {
+                    Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while pacing replication traffic");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.video.transcoding.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Single-pass multipart/form-data reader: part bodies are handed to the caller straight off the request stream
+class MultipartStreamParser {
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int MAX_HEADER_LINE = 8192;
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    interface ChunkSink {
+        void write(byte[] buffer, int offset, int length) throws IOException;
+    }
+
+    private final InputStream input;
+    // "\r\n--boundary": the CRLF before a boundary belongs to the delimiter, not the body
+    private final byte[] delimiter;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos;
+    private int end;
+    private boolean started;
+    private boolean bodyPending;
+    private boolean finished;
+
+    MultipartStreamParser(InputStream input, String boundary) {
+        this.input = input;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        // The opening boundary has no leading CRLF; seed one so a single delimiter scan handles every boundary
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        end = 2;
+    }
+
+    static String boundaryOf(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")) {
+            throw new IllegalArgumentException("Expected a multipart request");
+        }
+        for (String parameter : contentType.split(";")) {
+            String value = parameter.trim();
+            if (value.toLowerCase(Locale.ROOT).startsWith("boundary=")) {
+                String boundary = value.substring("boundary=".length());
+                if (boundary.length() >= 2 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+                    boundary = boundary.substring(1, boundary.length() - 1);
+                }
+                return boundary;
+            }
+        }
+        throw new IllegalArgumentException("Multipart boundary missing");
+    }
+
+    static String dispositionParam(String disposition, String name) {
+        Matcher matcher = Pattern.compile("(?:^|;)\\s*" + name + "=\"([^\"]*)\"").matcher(disposition);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    // Headers of the next part (lower-case names), or null after the closing boundary
+    Map<String, String> nextPart() throws IOException {
+        if (!started || bodyPending) {
+            // Skip the preamble, or a body the caller chose not to read
+            readBody(null);
+            started = true;
+        }
+        if (finished) {
+            return null;
+        }
+
+        require(2);
+        if (buffer[pos] == '-' && buffer[pos + 1] == '-') {
+            finished = true;
+            return null;
+        }
+        pos += 2;
+
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+        bodyPending = true;
+        return headers;
+    }
+
+    void transferBody(ChunkSink sink) throws IOException {
+        readBody(sink);
+    }
+
+    private void readBody(ChunkSink sink) throws IOException {
+        while (true) {
+            int index = indexOf(delimiter, pos, end);
+            if (index >= 0) {
+                if (sink != null && index > pos) {
+                    sink.write(buffer, pos, index - pos);
+                }
+                pos = index + delimiter.length;
+                bodyPending = false;
+                return;
+            }
+
+            // Everything except a possibly split delimiter at the tail is body
+            int safe = end - delimiter.length + 1;
+            if (safe > pos) {
+                if (sink != null) {
+                    sink.write(buffer, pos, safe - pos);
+                }
+                pos = safe;
+            }
+            if (!readMore()) {
+                throw new IOException("Unexpected end of multipart stream");
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        while (true) {
+            int index = indexOf(CRLF, pos, end);
+            if (index >= 0) {
+                String line = new String(buffer, pos, index - pos, StandardCharsets.UTF_8);
+                pos = index + CRLF.length;
+                return line;
+            }
+            if (end - pos > MAX_HEADER_LINE) {
+                throw new IOException("Multipart header line too long");
+            }
+            if (!readMore()) {
+                throw new IOException("Unexpected end of multipart headers");
+            }
+        }
+    }
+
+    private void require(int count) throws IOException {
+        while (end - pos < count) {
+            if (!readMore()) {
+                throw new IOException("Unexpected end of multipart stream");
+            }
+        }
+    }
+
+    private boolean readMore() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, end - pos);
+            end -= pos;
+            pos = 0;
+        }
+        int read = input.read(buffer, end, buffer.length - end);
+        if (read == -1) {
+            return false;
+        }
+        end += read;
+        return true;
+    }
+
+    private int indexOf(byte[] pattern, int from, int to) {
+        int last = to - pattern.length;
+        outer:
+        for (int i = from; i <= last; i++) {
+            if (buffer[i] != pattern[0]) {
+                continue;
+            }
+            for (int j = 1; j < pattern.length; j++) {
+                if (buffer[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,42 @@
+package com.video.transcoding.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Holds back one record without stalling its consumer: the record is rewound and only its partition is paused,
+// so the listener keeps polling every other partition assigned to it
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PartitionDeferrer {
+    private final KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+    private final ScheduledExecutorService resumeScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "partition-resume");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Must be called on the consumer thread, from a container polling one record at a time
+    public void defer(String listenerId, TopicPartition partition, long offset, Consumer<?, ?> consumer, long delayMillis) {
+        consumer.seek(partition, offset);
+        MessageListenerContainer container = kafkaListenerEndpointRegistry.getListenerContainer(listenerId);
+        container.pausePartition(partition);
+        resumeScheduler.schedule(() -> container.resumePartition(partition), delayMillis, TimeUnit.MILLISECONDS);
+        log.debug("Deferred {} offset {} by {} ms", partition, offset, delayMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        resumeScheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,215 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.VideoProcessingConfig;
+import com.video.transcoding.model.RenditionSet;
+import com.video.transcoding.model.Video;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.Result;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RenditionSetService {
+    private static final int HASH_BUFFER_SIZE = 1024 * 1024;
+    // Sets touched more recently than this may have an acquire whose Video is still being saved
+    private static final int RECONCILE_QUIET_MINUTES = 60;
+
+    private final MongoTemplate mongoTemplate;
+    private final MinioClient minioClient;
+    private final VideoProcessingConfig videoProcessingConfig;
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    // For sources that were not hashed on the way in (chunked uploads land out of order)
+    public String hashFile(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    // Everything that changes the encoded output; a ladder or packaging change never reuses old renditions
+    public String ladderFingerprint() {
+        StringBuilder settings = new StringBuilder(videoProcessingConfig.getPackaging().name());
+        // Streamed output is fragmented MP4 rather than faststart; single-pass encodes share one decode and scaler
+        settings.append('|').append(videoProcessingConfig.getOutputMode()).append(',').append(videoProcessingConfig.getEncodeMode());
+        if (videoProcessingConfig.getPackaging() == VideoProcessingConfig.Packaging.HLS) {
+            settings.append('|').append(videoProcessingConfig.getHls().getSegmentDuration());
+        }
+        // Which rungs a source gets, and which of them are stream copies
+        VideoProcessingConfig.Ladder ladder = videoProcessingConfig.getLadder();
+        settings.append('|').append(ladder.getMaxHeight()).append(',').append(ladder.isSkipUpscale())
+            .append(',').append(ladder.isRemux()).append(',').append(ladder.getRemuxBitrateTolerance());
+        VideoProcessingConfig.Audio audio = videoProcessingConfig.getAudio();
+        settings.append('|').append(audio.getBitrate()).append(',').append(audio.getSampleRate()).append(',').append(audio.getChannels());
+        for (VideoProcessingConfig.Quality quality : videoProcessingConfig.getQualities()) {
+            settings.append('|').append(quality.getName())
+                .append(',').append(quality.getHeight())
+                .append(',').append(quality.getBitrate())
+                .append(',').append(quality.getPreset())
+                .append(',').append(quality.getCrf());
+        }
+        return hex(newDigest().digest(settings.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public String setId(String contentHash) {
+        return contentHash + ":" + ladderFingerprint();
+    }
+
+    // Takes a reference on a ready set for this source, or returns null when it has to be encoded
+    public RenditionSet acquire(String contentHash) {
+        return mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(setId(contentHash)).and("status").is("READY")),
+            new Update().inc("refCount", 1).set("updatedAt", LocalDateTime.now()),
+            FindAndModifyOptions.options().returnNew(true),
+            RenditionSet.class
+        );
+    }
+
+    // Publishes a freshly encoded video's renditions for reuse; returns the set id, or null if a
+    // concurrent upload of the same source registered first (the video then keeps its own renditions)
+    public String register(String contentHash, Video video) {
+        RenditionSet set = new RenditionSet();
+        set.setId(setId(contentHash));
+        set.setContentHash(contentHash);
+        set.setLadderFingerprint(ladderFingerprint());
+        set.setOwnerVideoId(video.getId());
+        set.setQualities(video.getQualities());
+        set.setHls(video.getHls());
+        set.setRefCount(1);
+        set.setStatus("READY");
+        set.setCreatedAt(LocalDateTime.now());
+        set.setUpdatedAt(LocalDateTime.now());
+        try {
+            mongoTemplate.insert(set);
+            return set.getId();
+        } catch (DuplicateKeyException e) {
+            log.info("Rendition set {} already registered, video {} keeps its own renditions", set.getId(), video.getId());
+            return null;
+        }
+    }
+
+    public void release(String renditionSetId) throws Exception {
+        RenditionSet set = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(renditionSetId)),
+            new Update().inc("refCount", -1).set("updatedAt", LocalDateTime.now()),
+            FindAndModifyOptions.options().returnNew(true),
+            RenditionSet.class
+        );
+        if (set == null || set.getRefCount() > 0) {
+            return;
+        }
+        removeIfUnreferenced(renditionSetId);
+    }
+
+    // A crash between acquire and the Video save leaves a reference no video holds, so the set would never be
+    // removed. Quiet sets get their count recomputed from the videos that actually point at them
+    @Scheduled(fixedRate = 3600000)
+    public void reconcileRefCounts() {
+        List<RenditionSet> quiet = mongoTemplate.find(
+            Query.query(Criteria.where("status").is("READY")
+                .and("updatedAt").lt(LocalDateTime.now().minusMinutes(RECONCILE_QUIET_MINUTES))),
+            RenditionSet.class
+        );
+        for (RenditionSet set : quiet) {
+            try {
+                long references = mongoTemplate.count(Query.query(Criteria.where("renditionSetId").is(set.getId())), Video.class);
+                if (references == set.getRefCount()) {
+                    continue;
+                }
+                // Only if nothing acquired or released it since it was read
+                boolean corrected = mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(set.getId())
+                        .and("refCount").is(set.getRefCount())
+                        .and("updatedAt").is(set.getUpdatedAt())),
+                    new Update().set("refCount", references).set("updatedAt", LocalDateTime.now()),
+                    RenditionSet.class
+                ).getModifiedCount() > 0;
+                if (!corrected) {
+                    continue;
+                }
+                log.warn("Rendition set {} had refCount {} but {} referencing videos", set.getId(), set.getRefCount(), references);
+                if (references == 0) {
+                    removeIfUnreferenced(set.getId());
+                }
+            } catch (Exception e) {
+                log.error("Error reconciling rendition set: {}", set.getId(), e);
+            }
+        }
+    }
+
+    private void removeIfUnreferenced(String renditionSetId) throws Exception {
+        // Claimed only while still unreferenced, so an upload that re-acquired it in between keeps it alive
+        RenditionSet claimed = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(renditionSetId).and("refCount").lte(0).and("status").is("READY")),
+            new Update().set("status", "DELETING"),
+            RenditionSet.class
+        );
+        if (claimed == null) {
+            return;
+        }
+        removeObjects(claimed.getOwnerVideoId() + "/");
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(renditionSetId)), RenditionSet.class);
+        log.info("Removed unreferenced rendition set: {}", renditionSetId);
+    }
+
+    public void removeObjects(String prefix) throws Exception {
+        Iterable<Result<Item>> objects = minioClient.listObjects(
+            ListObjectsArgs.builder()
+                .bucket(videoProcessingConfig.getTempDir())
+                .prefix(prefix)
+                .recursive(true)
+                .build()
+        );
+        for (Result<Item> object : objects) {
+            minioClient.removeObject(
+                RemoveObjectArgs.builder()
+                    .bucket(videoProcessingConfig.getTempDir())
+                    .object(object.get().objectName())
+                    .build()
+            );
+        }
+    }
+}
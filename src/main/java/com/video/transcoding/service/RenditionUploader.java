@@ -0,0 +1,113 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.VideoProcessingConfig;
+import com.video.transcoding.model.Video;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.CountingInputStream;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Service
+public class RenditionUploader {
+    private final MinioClient minioClient;
+    private final VideoProcessingConfig videoProcessingConfig;
+    private final ExecutorService ioExecutor;
+    private final RetryTemplate retryTemplate;
+
+    public RenditionUploader(MinioClient minioClient, VideoProcessingConfig videoProcessingConfig, RetryTemplate retryTemplate) {
+        this.minioClient = minioClient;
+        this.videoProcessingConfig = videoProcessingConfig;
+        this.retryTemplate = retryTemplate;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.ioExecutor = Executors.newFixedThreadPool(
+            videoProcessingConfig.getUpload().getThreads(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "upload-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+    }
+
+    // Uploads on the I/O pool so the caller's CPU slots are free for the next encode
+    public CompletableFuture<Video.ManifestObject> uploadAsync(File file, String objectName) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return upload(file, objectName);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, ioExecutor);
+    }
+
+    // Each upload is retried on its own; a failed upload never re-runs the encode that produced the file
+    public Video.ManifestObject upload(File file, String objectName) throws Exception {
+        return upload(file, objectName, "video/mp4");
+    }
+
+    // The checksum is taken from the bytes as they are sent, so the manifest costs no second read
+    public Video.ManifestObject upload(File file, String objectName, String contentType) throws Exception {
+        return retryTemplate.<Video.ManifestObject, Exception>execute(context -> {
+            if (context.getRetryCount() > 0) {
+                log.warn("Retrying upload of {} (attempt {})", objectName, context.getRetryCount() + 1);
+            }
+            MessageDigest digest = RenditionSetService.newDigest();
+            try (InputStream inputStream = new DigestInputStream(new FileInputStream(file), digest)) {
+                minioClient.putObject(
+                    PutObjectArgs.builder()
+                        .bucket(videoProcessingConfig.getTempDir())
+                        .object(objectName)
+                        .stream(inputStream, file.length(), -1)
+                        .contentType(contentType)
+                        .build()
+                );
+            }
+            return manifestObject(objectName, contentType, file.length(), digest);
+        });
+    }
+
+    // Multipart upload of a stream of unknown length, one fixed-size part at a time; not retried since the stream can't be replayed
+    public Video.ManifestObject uploadStream(InputStream inputStream, String objectName) throws Exception {
+        MessageDigest digest = RenditionSetService.newDigest();
+        CountingInputStream counted = new CountingInputStream(new DigestInputStream(inputStream, digest));
+        minioClient.putObject(
+            PutObjectArgs.builder()
+                .bucket(videoProcessingConfig.getTempDir())
+                .object(objectName)
+                .stream(counted, -1, videoProcessingConfig.getUpload().getPartSize())
+                .contentType("video/mp4")
+                .build()
+        );
+        return manifestObject(objectName, "video/mp4", counted.getByteCount(), digest);
+    }
+
+    private Video.ManifestObject manifestObject(String objectName, String contentType, long size, MessageDigest digest) {
+        Video.ManifestObject object = new Video.ManifestObject();
+        object.setObjectName(objectName);
+        object.setContentType(contentType);
+        object.setSize(size);
+        object.setChecksum(RenditionSetService.hex(digest.digest()));
+        return object;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ioExecutor.shutdown();
+    }
+}
@@ -0,0 +1,306 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.ReplicationConfig;
+import com.video.transcoding.dto.ReplicationQueueStatus;
+import com.video.transcoding.model.Organization;
+import com.video.transcoding.model.ReplicationTask;
+import com.video.transcoding.model.Video;
+import com.video.transcoding.repository.VideoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Persistent queue in front of VideoReplicaService: transfers to each organization run in priority order,
+// a few at a time, within that link's budget and (for background work) its off-peak window
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReplicationQueueService {
+    public static final String INTERACTIVE = "INTERACTIVE";
+    public static final String BACKGROUND = "BACKGROUND";
+    private static final long PROGRESS_FLUSH_MS = 2000;
+    private static final int STATUS_TRANSFER_LIMIT = 50;
+
+    private final MongoTemplate mongoTemplate;
+    private final VideoRepository videoRepository;
+    private final VideoReplicaService videoReplicaService;
+    private final LinkBudgetService linkBudgetService;
+    private final ReplicationConfig replicationConfig;
+    private final Organization currentOrg;
+    // Tasks this node is running; bounded by concurrentVideos, whatever the links would still allow
+    private final Map<String, TaskProgress> inFlight = new ConcurrentHashMap<>();
+
+    // A video already queued or running keeps its place; asking again with INTERACTIVE moves it ahead of background work
+    public ReplicationTask enqueue(String videoId, Organization target, String priority) {
+        if (!INTERACTIVE.equals(priority) && !BACKGROUND.equals(priority)) {
+            throw new IllegalArgumentException("Unknown replication priority: " + priority);
+        }
+        if (target == currentOrg) {
+            throw new IllegalArgumentException("Cannot replicate to the current organization");
+        }
+        String id = videoId + ":" + target.name();
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            // New, or finished earlier (the video may have been re-encoded since): queue it
+            mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(id).and("status").nin("QUEUED", "RUNNING")),
+                new Update()
+                    .setOnInsert("videoId", videoId)
+                    .setOnInsert("targetOrganization", target.name())
+                    .set("priority", priority)
+                    .set("rank", rank(priority))
+                    .set("status", "QUEUED")
+                    .set("attempts", 0)
+                    .set("bytesTotal", 0L)
+                    .set("bytesSent", 0L)
+                    .set("errorMessage", null)
+                    .set("enqueuedAt", now)
+                    .set("notBefore", now)
+                    .set("updatedAt", now),
+                FindAndModifyOptions.options().upsert(true),
+                ReplicationTask.class
+            );
+            log.info("Queued {} replication of video {} to {}", priority, videoId, target);
+        } catch (DuplicateKeyException e) {
+            // Already queued or running
+            if (INTERACTIVE.equals(priority)) {
+                mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(id).and("status").is("QUEUED")),
+                    new Update()
+                        .set("priority", INTERACTIVE)
+                        .set("rank", rank(INTERACTIVE))
+                        .set("notBefore", now)
+                        .set("updatedAt", now),
+                    ReplicationTask.class
+                );
+            }
+        }
+        return mongoTemplate.findById(id, ReplicationTask.class);
+    }
+
+    @Scheduled(fixedDelayString = "${video.replication.dispatch-interval-ms:1000}")
+    public void dispatch() {
+        requeueStale();
+        for (Organization target : Organization.values()) {
+            if (target == currentOrg) {
+                continue;
+            }
+            try {
+                dispatchTo(target);
+            } catch (Exception e) {
+                log.error("Error dispatching replication tasks to {}", target, e);
+            }
+        }
+    }
+
+    public ReplicationQueueStatus getStatus() {
+        ReplicationQueueStatus status = new ReplicationQueueStatus();
+        for (Organization target : Organization.values()) {
+            if (target == currentOrg) {
+                continue;
+            }
+            ReplicationQueueStatus.Link link = new ReplicationQueueStatus.Link();
+            link.setOrganization(target.name());
+            link.setBytesPerSecond(linkBudgetService.bytesPerSecond(target));
+            link.setOffPeak(linkBudgetService.inOffPeak(target));
+            link.setRunning((int) count(target, "RUNNING", null));
+            link.setQueuedInteractive(count(target, "QUEUED", INTERACTIVE));
+            link.setQueuedBackground(count(target, "QUEUED", BACKGROUND));
+            link.setFailed(count(target, "FAILED", null));
+
+            // Running transfers first, then the queue in dispatch order
+            List<ReplicationTask> tasks = mongoTemplate.find(
+                Query.query(Criteria.where("targetOrganization").is(target.name()).and("status").in("RUNNING", "QUEUED"))
+                    .with(Sort.by(Sort.Order.desc("status"), Sort.Order.asc("rank"), Sort.Order.asc("enqueuedAt")))
+                    .limit(STATUS_TRANSFER_LIMIT),
+                ReplicationTask.class
+            );
+            for (ReplicationTask task : tasks) {
+                ReplicationQueueStatus.Transfer transfer = new ReplicationQueueStatus.Transfer();
+                transfer.setVideoId(task.getVideoId());
+                transfer.setPriority(task.getPriority());
+                transfer.setStatus(task.getStatus());
+                transfer.setAttempts(task.getAttempts());
+                transfer.setBytesTotal(task.getBytesTotal());
+                transfer.setBytesSent(task.getBytesSent());
+                transfer.setEnqueuedAt(task.getEnqueuedAt());
+                transfer.setStartedAt(task.getStartedAt());
+                link.getTransfers().add(transfer);
+            }
+            status.getLinks().add(link);
+        }
+        return status;
+    }
+
+    // The slot count is shared by every node; checking and claiming are separate steps,
+    // so nodes dispatching at the same moment can briefly run one transfer more than maxTransfers
+    private void dispatchTo(Organization target) {
+        ReplicationConfig.Link link = replicationConfig.linkFor(target);
+        while (inFlight.size() < replicationConfig.getConcurrentVideos()) {
+            long running = count(target, "RUNNING", null);
+            if (running >= link.getMaxTransfers()) {
+                return;
+            }
+            // The last slot is kept for viewer-waiting transfers, so a background backlog never makes them queue
+            boolean backgroundAllowed = running < Math.max(1, link.getMaxTransfers() - 1)
+                && (!link.isBackgroundOffPeakOnly() || linkBudgetService.inOffPeak(target));
+
+            Criteria criteria = Criteria.where("targetOrganization").is(target.name())
+                .and("status").is("QUEUED")
+                .and("notBefore").lte(LocalDateTime.now());
+            if (!backgroundAllowed) {
+                criteria.and("priority").is(INTERACTIVE);
+            }
+            ReplicationTask task = mongoTemplate.findAndModify(
+                Query.query(criteria).with(Sort.by(Sort.Order.asc("rank"), Sort.Order.asc("enqueuedAt"))),
+                new Update()
+                    .set("status", "RUNNING")
+                    .inc("attempts", 1)
+                    .set("bytesTotal", 0L)
+                    .set("bytesSent", 0L)
+                    .set("startedAt", LocalDateTime.now())
+                    .set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                ReplicationTask.class
+            );
+            if (task == null) {
+                return;
+            }
+            start(task, target);
+        }
+    }
+
+    private void start(ReplicationTask task, Organization target) {
+        Video video = videoRepository.findById(task.getVideoId()).orElse(null);
+        if (video == null) {
+            finish(task, 0, new IllegalArgumentException("Video not found"));
+            return;
+        }
+        log.info("Starting {} replication of video {} to {} (attempt {})",
+            task.getPriority(), task.getVideoId(), target, task.getAttempts());
+        TaskProgress progress = new TaskProgress(task.getId());
+        inFlight.put(task.getId(), progress);
+        videoReplicaService.replicateAsync(video, target, progress)
+            .whenComplete((v, e) -> {
+                inFlight.remove(task.getId());
+                finish(task, progress.sent.get(), e);
+            });
+    }
+
+    // Progress and liveness of running tasks go out on a timer, so a transfer paced down to nothing
+    // (or waiting on a slow part) still refreshes its task and is not requeued as stale
+    @Scheduled(fixedDelay = PROGRESS_FLUSH_MS)
+    public void heartbeat() {
+        for (TaskProgress progress : inFlight.values()) {
+            try {
+                progress.update(new Update().max("bytesSent", progress.sent.get()));
+            } catch (Exception e) {
+                log.warn("Error refreshing replication task {}: {}", progress.taskId, e.getMessage());
+            }
+        }
+    }
+
+    private void finish(ReplicationTask task, long bytesSent, Throwable error) {
+        Query running = Query.query(Criteria.where("_id").is(task.getId()).and("status").is("RUNNING"));
+        Update update = new Update().max("bytesSent", bytesSent).set("updatedAt", LocalDateTime.now());
+        if (error == null) {
+            mongoTemplate.updateFirst(running, update.set("status", "DONE").set("errorMessage", null), ReplicationTask.class);
+            log.info("Replicated video {} to {} ({} bytes sent)", task.getVideoId(), task.getTargetOrganization(), bytesSent);
+            return;
+        }
+
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        update.set("errorMessage", cause.getMessage());
+        if (cause instanceof VideoReplicaService.AlreadyReplicatingException) {
+            // Not a failed attempt: wait for the other node's transfer, then diff again
+            mongoTemplate.updateFirst(running,
+                update.set("status", "QUEUED")
+                    .inc("attempts", -1)
+                    .set("notBefore", LocalDateTime.now().plusSeconds(replicationConfig.getRetryDelaySeconds())),
+                ReplicationTask.class);
+            log.info("Video {} is already being replicated to {}, requeued", task.getVideoId(), task.getTargetOrganization());
+            return;
+        }
+        // A missing video or endpoint will not fix itself on retry
+        if (cause instanceof IllegalArgumentException || task.getAttempts() >= replicationConfig.getMaxAttempts()) {
+            mongoTemplate.updateFirst(running, update.set("status", "FAILED"), ReplicationTask.class);
+            log.error("Replication of video {} to {} failed after {} attempts",
+                task.getVideoId(), task.getTargetOrganization(), task.getAttempts(), cause);
+            return;
+        }
+        long delaySeconds = (long) replicationConfig.getRetryDelaySeconds() << (task.getAttempts() - 1);
+        mongoTemplate.updateFirst(running,
+            update.set("status", "QUEUED").set("notBefore", LocalDateTime.now().plusSeconds(delaySeconds)),
+            ReplicationTask.class);
+        log.warn("Replication of video {} to {} failed, retrying in {} s: {}",
+            task.getVideoId(), task.getTargetOrganization(), delaySeconds, cause.getMessage());
+    }
+
+    // A node that died mid-transfer stops refreshing its task; the transfer resumes from the confirmed parts elsewhere
+    private void requeueStale() {
+        LocalDateTime staleBefore = LocalDateTime.now().minusMinutes(replicationConfig.getClaimStaleMinutes());
+        long requeued = mongoTemplate.updateMulti(
+            Query.query(Criteria.where("status").is("RUNNING").and("updatedAt").lt(staleBefore)),
+            new Update().set("status", "QUEUED").set("notBefore", LocalDateTime.now()).set("updatedAt", LocalDateTime.now()),
+            ReplicationTask.class
+        ).getModifiedCount();
+        if (requeued > 0) {
+            log.warn("Requeued {} stale replication tasks", requeued);
+        }
+    }
+
+    private long count(Organization target, String status, String priority) {
+        Criteria criteria = Criteria.where("targetOrganization").is(target.name()).and("status").is(status);
+        if (priority != null) {
+            criteria.and("priority").is(priority);
+        }
+        return mongoTemplate.count(Query.query(criteria), ReplicationTask.class);
+    }
+
+    private static int rank(String priority) {
+        return INTERACTIVE.equals(priority) ? 0 : 1;
+    }
+
+    // Counts bytes put on the link; heartbeat() writes them out
+    private class TaskProgress implements VideoReplicaService.ProgressListener {
+        private final String taskId;
+        private final AtomicLong sent = new AtomicLong();
+
+        TaskProgress(String taskId) {
+            this.taskId = taskId;
+        }
+
+        @Override
+        public void onPlanned(long bytes) {
+            update(new Update().set("bytesTotal", bytes));
+        }
+
+        @Override
+        public void onSent(long bytes) {
+            sent.addAndGet(bytes);
+        }
+
+        private void update(Update update) {
+            mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(taskId).and("status").is("RUNNING")),
+                update.set("updatedAt", LocalDateTime.now()),
+                ReplicationTask.class
+            );
+        }
+    }
+}
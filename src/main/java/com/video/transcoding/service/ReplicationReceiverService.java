@@ -0,0 +1,352 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.ReplicationConfig;
+import com.video.transcoding.config.VideoProcessingConfig;
+import com.video.transcoding.dto.OpenReplicationRequest;
+import com.video.transcoding.dto.ReplicationManifest;
+import com.video.transcoding.dto.ReplicationSessionStatus;
+import com.video.transcoding.model.Organization;
+import com.video.transcoding.model.ReplicationSession;
+import io.minio.ComposeObjectArgs;
+import io.minio.ComposeSource;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReplicationReceiverService {
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final long MAX_PART_SIZE = 512L * 1024 * 1024;
+    // User metadata key holding the SHA-256 of a replicated object
+    private static final String CHECKSUM_METADATA = "sha256";
+    // User metadata key naming the organization a replicated object came from
+    private static final String SOURCE_METADATA = "source-organization";
+    // Replicated objects always live under a video's own prefix: <videoId>/...
+    private static final Pattern VIDEO_OBJECT = Pattern.compile("^[0-9a-fA-F]{8}(-[0-9a-fA-F]{4}){3}-[0-9a-fA-F]{12}/[^/].*");
+
+    private final MongoTemplate mongoTemplate;
+    private final MinioClient minioClient;
+    private final VideoProcessingConfig videoProcessingConfig;
+    private final ReplicationConfig replicationConfig;
+    private final Organization currentOrg;
+
+    public static class PeerNotAllowedException extends RuntimeException {
+        public PeerNotAllowedException(String message) {
+            super(message);
+        }
+    }
+
+    // One session per (object, size): a sender that reconnects gets the same session and its confirmed parts back
+    public ReplicationSessionStatus open(OpenReplicationRequest request, String callerAddress) throws Exception {
+        verifyPeer(request.getSourceOrganization(), callerAddress);
+        if (request.getObjectName() == null || request.getObjectName().isEmpty() || request.getTotalSize() <= 0) {
+            throw new IllegalArgumentException("Object name and size are required");
+        }
+        verifyObjectName(request.getObjectName());
+        if (request.getPartSize() < MIN_PART_SIZE || request.getPartSize() > MAX_PART_SIZE) {
+            throw new IllegalArgumentException("Part size must be between " + MIN_PART_SIZE + " and " + MAX_PART_SIZE + " bytes");
+        }
+
+        Query query = Query.query(Criteria.where("objectName").is(request.getObjectName())
+            .and("totalSize").is(request.getTotalSize()));
+        ReplicationSession session = mongoTemplate.findAndModify(
+            query,
+            new Update()
+                .setOnInsert("_id", UUID.randomUUID().toString())
+                .setOnInsert("contentType", request.getContentType())
+                .setOnInsert("checksum", request.getChecksum())
+                .setOnInsert("partSize", request.getPartSize())
+                .setOnInsert("partCount", (int) ((request.getTotalSize() + request.getPartSize() - 1) / request.getPartSize()))
+                .setOnInsert("sourceOrganization", request.getSourceOrganization())
+                .setOnInsert("status", "OPEN")
+                .setOnInsert("createdAt", LocalDateTime.now())
+                .set("updatedAt", LocalDateTime.now())
+                .set("expiresAt", LocalDateTime.now().plusHours(replicationConfig.getSessionTtlHours())),
+            FindAndModifyOptions.options().upsert(true).returnNew(true),
+            ReplicationSession.class
+        );
+
+        boolean stale;
+        if ("COMPLETED".equals(session.getStatus())) {
+            // Replicated before, but the copy has since been removed or replaced by other content of the same size
+            stale = !holds(session.getObjectName(), request.getTotalSize(), request.getChecksum());
+        } else {
+            // Parts confirmed for other content of the same name and size can't be reused
+            stale = request.getChecksum() != null && !request.getChecksum().equalsIgnoreCase(session.getChecksum());
+            if (stale) {
+                removeParts(session);
+            }
+        }
+        if (stale) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(session.getId())), ReplicationSession.class);
+            return open(request, callerAddress);
+        }
+        if (!request.getSourceOrganization().equals(session.getSourceOrganization())) {
+            throw new PeerNotAllowedException("Object " + request.getObjectName() + " is being replicated by " + session.getSourceOrganization());
+        }
+        if ("OPEN".equals(session.getStatus())) {
+            // Fails before any part crosses the link rather than at compose time
+            verifyOverwrite(session);
+        }
+        return toStatus(session);
+    }
+
+    public ReplicationSessionStatus getStatus(String sessionId) {
+        return toStatus(findSession(sessionId));
+    }
+
+    // Streams one part straight into its own MinIO object; it only counts as confirmed if the checksum matches
+    public void writePart(String sessionId, int index, String checksum, long contentLength, InputStream body,
+                          String callerAddress) throws Exception {
+        ReplicationSession session = findSession(sessionId);
+        verifyPeer(session.getSourceOrganization(), callerAddress);
+        if (!"OPEN".equals(session.getStatus())) {
+            throw new IllegalStateException("Replication session is " + session.getStatus());
+        }
+        if (index < 0 || index >= session.getPartCount()) {
+            throw new IllegalArgumentException("Part index out of range: " + index);
+        }
+        if (checksum == null || checksum.isEmpty()) {
+            throw new IllegalArgumentException("Part checksum is required");
+        }
+        long expected = Math.min(session.getPartSize(), session.getTotalSize() - index * session.getPartSize());
+        if (contentLength >= 0 && contentLength != expected) {
+            throw new IllegalArgumentException("Part " + index + " must be " + expected + " bytes, got " + contentLength);
+        }
+
+        String partObject = partObject(session, index);
+        MessageDigest digest = RenditionSetService.newDigest();
+        try (InputStream inputStream = new DigestInputStream(body, digest)) {
+            minioClient.putObject(
+                PutObjectArgs.builder()
+                    .bucket(videoProcessingConfig.getTempDir())
+                    .object(partObject)
+                    .stream(inputStream, expected, -1)
+                    .build()
+            );
+        }
+        String actual = RenditionSetService.hex(digest.digest());
+        if (!actual.equalsIgnoreCase(checksum)) {
+            removeObject(partObject);
+            throw new IllegalArgumentException("Checksum mismatch on part " + index);
+        }
+
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(sessionId)),
+            new Update().addToSet("confirmedParts", index).set("updatedAt", LocalDateTime.now()),
+            ReplicationSession.class
+        );
+    }
+
+    // Stitches the parts together inside MinIO, so the object is never assembled in this process either
+    public ReplicationSessionStatus complete(String sessionId, String callerAddress) throws Exception {
+        ReplicationSession session = findSession(sessionId);
+        verifyPeer(session.getSourceOrganization(), callerAddress);
+        if ("COMPLETED".equals(session.getStatus())) {
+            return toStatus(session);
+        }
+        if (session.getConfirmedParts().size() < session.getPartCount()) {
+            throw new IllegalStateException("Replication is missing " +
+                (session.getPartCount() - session.getConfirmedParts().size()) + " parts");
+        }
+        verifyObjectName(session.getObjectName());
+        verifyOverwrite(session);
+
+        List<ComposeSource> sources = new ArrayList<>();
+        for (int i = 0; i < session.getPartCount(); i++) {
+            sources.add(ComposeSource.builder()
+                .bucket(videoProcessingConfig.getTempDir())
+                .object(partObject(session, i))
+                .build());
+        }
+        ComposeObjectArgs.Builder compose = ComposeObjectArgs.builder()
+            .bucket(videoProcessingConfig.getTempDir())
+            .object(session.getObjectName())
+            .sources(sources);
+        if (session.getContentType() != null) {
+            compose.headers(Map.of("Content-Type", session.getContentType()));
+        }
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(SOURCE_METADATA, session.getSourceOrganization());
+        if (session.getChecksum() != null) {
+            metadata.put(CHECKSUM_METADATA, session.getChecksum());
+        }
+        compose.userMetadata(metadata);
+        minioClient.composeObject(compose.build());
+
+        ReplicationSession completed = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(sessionId).and("status").is("OPEN")),
+            new Update().set("status", "COMPLETED").set("updatedAt", LocalDateTime.now()),
+            FindAndModifyOptions.options().returnNew(true),
+            ReplicationSession.class
+        );
+        removeParts(session);
+        log.info("Replicated {} ({} bytes, {} parts)", session.getObjectName(), session.getTotalSize(), session.getPartCount());
+        return toStatus(completed != null ? completed : findSession(sessionId));
+    }
+
+    // Manifest entries with no object of the same size (and checksum, when given) here; only these need to cross the link
+    public ReplicationManifest missing(ReplicationManifest manifest, String callerAddress) throws Exception {
+        verifyPeer(manifest.getSourceOrganization(), callerAddress);
+        ReplicationManifest missing = new ReplicationManifest();
+        for (ReplicationManifest.Entry entry : manifest.getObjects()) {
+            if (!holds(entry.getObjectName(), entry.getSize(), entry.getChecksum())) {
+                missing.getObjects().add(entry);
+            }
+        }
+        return missing;
+    }
+
+    @Scheduled(fixedRate = 3600000)
+    public void removeExpiredSessions() {
+        List<ReplicationSession> expired = mongoTemplate.find(
+            Query.query(Criteria.where("status").is("OPEN").and("expiresAt").lt(LocalDateTime.now())),
+            ReplicationSession.class
+        );
+        for (ReplicationSession session : expired) {
+            try {
+                removeParts(session);
+                mongoTemplate.remove(Query.query(Criteria.where("_id").is(session.getId())), ReplicationSession.class);
+                log.info("Removed expired replication session: {}", session.getId());
+            } catch (Exception e) {
+                log.error("Error removing replication session: {}", session.getId(), e);
+            }
+        }
+    }
+
+    private void removeParts(ReplicationSession session) throws Exception {
+        for (Integer index : session.getConfirmedParts()) {
+            removeObject(partObject(session, index));
+        }
+    }
+
+    private void removeObject(String objectName) throws Exception {
+        minioClient.removeObject(
+            RemoveObjectArgs.builder()
+                .bucket(videoProcessingConfig.getTempDir())
+                .object(objectName)
+                .build()
+        );
+    }
+
+    private void verifyPeer(String sourceOrganization, String callerAddress) {
+        Organization source;
+        try {
+            source = Organization.valueOf(String.valueOf(sourceOrganization));
+        } catch (IllegalArgumentException e) {
+            throw new PeerNotAllowedException("Unknown source organization: " + sourceOrganization);
+        }
+        if (source == currentOrg || !replicationConfig.isPeer(source)) {
+            throw new PeerNotAllowedException("Replication from " + source + " is not allowed");
+        }
+        if (replicationConfig.isVerifyPeerAddress() && !source.getIp().equals(callerAddress)) {
+            throw new PeerNotAllowedException("Caller " + callerAddress + " is not " + source);
+        }
+    }
+
+    // Keeps a peer inside video prefixes: no traversal, and never the receiver's own part objects
+    private void verifyObjectName(String objectName) {
+        if (!VIDEO_OBJECT.matcher(objectName).matches() || objectName.contains("..")
+                || objectName.contains("//") || objectName.startsWith("replication/")) {
+            throw new IllegalArgumentException("Object name is outside a video prefix: " + objectName);
+        }
+    }
+
+    // Only identical content, or an earlier copy from the same organization, may be replaced
+    private void verifyOverwrite(ReplicationSession session) throws Exception {
+        StatObjectResponse existing = statObject(session.getObjectName());
+        if (existing == null) {
+            return;
+        }
+        if (session.getSourceOrganization().equals(metadataValue(existing, SOURCE_METADATA))) {
+            return;
+        }
+        if (session.getChecksum() != null && session.getChecksum().equalsIgnoreCase(metadataValue(existing, CHECKSUM_METADATA))) {
+            return;
+        }
+        throw new IllegalStateException("Object " + session.getObjectName() + " already exists with different content");
+    }
+
+    // An object replicated without a checksum can't prove it matches one, so it is sent again once
+    private boolean holds(String objectName, long size, String checksum) throws Exception {
+        StatObjectResponse stat = statObject(objectName);
+        if (stat == null || stat.size() != size) {
+            return false;
+        }
+        return checksum == null || checksum.equalsIgnoreCase(metadataValue(stat, CHECKSUM_METADATA));
+    }
+
+    private static String metadataValue(StatObjectResponse stat, String key) {
+        for (Map.Entry<String, String> metadata : stat.userMetadata().entrySet()) {
+            if (key.equalsIgnoreCase(metadata.getKey())) {
+                return metadata.getValue();
+            }
+        }
+        return null;
+    }
+
+    private StatObjectResponse statObject(String objectName) throws Exception {
+        try {
+            return minioClient.statObject(
+                StatObjectArgs.builder()
+                    .bucket(videoProcessingConfig.getTempDir())
+                    .object(objectName)
+                    .build()
+            );
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private String partObject(ReplicationSession session, int index) {
+        return "replication/" + session.getId() + "/part-" + index;
+    }
+
+    private ReplicationSession findSession(String sessionId) {
+        ReplicationSession session = mongoTemplate.findById(sessionId, ReplicationSession.class);
+        if (session == null) {
+            throw new IllegalArgumentException("Replication session not found");
+        }
+        return session;
+    }
+
+    private ReplicationSessionStatus toStatus(ReplicationSession session) {
+        ReplicationSessionStatus status = new ReplicationSessionStatus();
+        status.setSessionId(session.getId());
+        status.setObjectName(session.getObjectName());
+        status.setTotalSize(session.getTotalSize());
+        status.setPartSize(session.getPartSize());
+        status.setPartCount(session.getPartCount());
+        status.setConfirmedParts(session.getConfirmedParts());
+        status.setStatus(session.getStatus());
+        return status;
+    }
+}
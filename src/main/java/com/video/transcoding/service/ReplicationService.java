@@ -0,0 +1,269 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.ReplicationConfig;
+import com.video.transcoding.config.VideoProcessingConfig;
+import com.video.transcoding.dto.OpenReplicationRequest;
+import com.video.transcoding.dto.ReplicationManifest;
+import com.video.transcoding.dto.ReplicationSessionStatus;
+import com.video.transcoding.model.Organization;
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import io.minio.StatObjectArgs;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+// Sending side of cross-organization replication: ranged reads of the local object, sent as parallel
+// checksummed parts into a session on the target. Neither side ever holds a whole file.
+@Slf4j
+@Service
+public class ReplicationService {
+    public static final String CHECKSUM_HEADER = "X-Part-Sha256";
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int HASH_BUFFER_SIZE = 1024 * 1024;
+
+    private final MinioClient minioClient;
+    private final VideoProcessingConfig videoProcessingConfig;
+    private final ReplicationConfig replicationConfig;
+    private final WebClient webClient;
+    private final RetryTemplate retryTemplate;
+    private final Organization currentOrg;
+    private final LinkBudgetService linkBudgetService;
+    private final ExecutorService transferExecutor;
+    private final ExecutorService partExecutor;
+
+    public ReplicationService(MinioClient minioClient, VideoProcessingConfig videoProcessingConfig,
+                              ReplicationConfig replicationConfig, WebClient webClient,
+                              RetryTemplate retryTemplate, Organization currentOrg,
+                              LinkBudgetService linkBudgetService) {
+        this.minioClient = minioClient;
+        this.videoProcessingConfig = videoProcessingConfig;
+        this.replicationConfig = replicationConfig;
+        this.webClient = webClient;
+        this.retryTemplate = retryTemplate;
+        this.currentOrg = currentOrg;
+        this.linkBudgetService = linkBudgetService;
+        // Separate pools: a transfer waits on its parts, so they must never compete for the same threads
+        this.transferExecutor = Executors.newFixedThreadPool(replicationConfig.getConcurrentTransfers(), daemonThreads("replication-"));
+        this.partExecutor = Executors.newFixedThreadPool(replicationConfig.getParallelParts(), daemonThreads("replication-part-"));
+    }
+
+    public CompletableFuture<Void> replicateAsync(ReplicationManifest.Entry entry, Organization target, LongConsumer sent) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                replicate(entry, target, sent);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, transferExecutor);
+    }
+
+    // Resumes where an earlier attempt stopped: the target reports which parts it already holds.
+    // sent is told about every byte put on the link, retried parts included
+    public void replicate(ReplicationManifest.Entry entry, Organization target, LongConsumer sent) throws Exception {
+        String endpoint = replicationConfig.getEndpoint(target);
+        if (endpoint == null) {
+            throw new IllegalArgumentException("No replication endpoint configured for organization: " + target);
+        }
+        String objectName = entry.getObjectName();
+
+        // Size and content type come from the manifest; only entries listed from MinIO lack a content type
+        String contentType = entry.getContentType();
+        if (contentType == null) {
+            contentType = minioClient.statObject(
+                StatObjectArgs.builder()
+                    .bucket(videoProcessingConfig.getTempDir())
+                    .object(objectName)
+                    .build()
+            ).contentType();
+        }
+
+        OpenReplicationRequest open = new OpenReplicationRequest();
+        open.setObjectName(objectName);
+        open.setContentType(contentType);
+        open.setTotalSize(entry.getSize());
+        open.setChecksum(entry.getChecksum());
+        open.setPartSize(replicationConfig.getPartSize());
+        open.setSourceOrganization(currentOrg.name());
+        ReplicationSessionStatus session = retryTemplate.<ReplicationSessionStatus, Exception>execute(context ->
+            webClient.post()
+                .uri(endpoint + "/sessions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(open)
+                .retrieve()
+                .bodyToMono(ReplicationSessionStatus.class)
+                .block(Duration.ofSeconds(replicationConfig.getPartTimeoutSeconds()))
+        );
+        if ("COMPLETED".equals(session.getStatus())) {
+            log.info("{} is already replicated to {}", objectName, target);
+            return;
+        }
+
+        Set<Integer> confirmed = new HashSet<>(session.getConfirmedParts());
+        if (!confirmed.isEmpty()) {
+            log.info("Resuming replication of {} to {}: {} of {} parts already confirmed",
+                objectName, target, confirmed.size(), session.getPartCount());
+        }
+        List<CompletableFuture<Void>> parts = new ArrayList<>();
+        for (int i = 0; i < session.getPartCount(); i++) {
+            if (confirmed.contains(i)) {
+                continue;
+            }
+            int index = i;
+            long offset = index * session.getPartSize();
+            long length = Math.min(session.getPartSize(), session.getTotalSize() - offset);
+            parts.add(CompletableFuture.runAsync(() -> {
+                try {
+                    sendPart(endpoint, target, session.getSessionId(), objectName, index, offset, length, sent);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, partExecutor));
+        }
+
+        // Let every part settle so the confirmed ones are kept for the next attempt, then surface the first failure
+        CompletableFuture.allOf(parts.toArray(new CompletableFuture[0]))
+            .handle((v, e) -> null)
+            .get();
+        for (CompletableFuture<Void> part : parts) {
+            try {
+                part.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+
+        retryTemplate.<Void, Exception>execute(context -> {
+            webClient.post()
+                .uri(endpoint + "/sessions/{sessionId}/complete", session.getSessionId())
+                .retrieve()
+                .toBodilessEntity()
+                .block(Duration.ofSeconds(replicationConfig.getPartTimeoutSeconds()));
+            return null;
+        });
+        log.info("Replicated {} to {} ({} bytes)", objectName, target, session.getTotalSize());
+    }
+
+    // Asks the target which manifest entries it does not hold yet
+    public ReplicationManifest missingOn(Organization target, ReplicationManifest manifest) throws Exception {
+        String endpoint = replicationConfig.getEndpoint(target);
+        if (endpoint == null) {
+            throw new IllegalArgumentException("No replication endpoint configured for organization: " + target);
+        }
+        manifest.setSourceOrganization(currentOrg.name());
+        return retryTemplate.<ReplicationManifest, Exception>execute(context ->
+            webClient.post()
+                .uri(endpoint + "/manifest/diff")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(manifest)
+                .retrieve()
+                .bodyToMono(ReplicationManifest.class)
+                .block(Duration.ofSeconds(replicationConfig.getPartTimeoutSeconds()))
+        );
+    }
+
+    // A stalled or corrupted part is retried on its own; the rest of the transfer is unaffected
+    private void sendPart(String endpoint, Organization target, String sessionId, String objectName,
+                          int index, long offset, long length, LongConsumer sent) throws Exception {
+        // Hashing costs a second local read, but the inter-unit link carries each verified byte only once
+        String checksum = hashRange(objectName, offset, length);
+        retryTemplate.<Void, Exception>execute(context -> {
+            if (context.getRetryCount() > 0) {
+                log.warn("Retrying part {} of {} (attempt {})", index, objectName, context.getRetryCount() + 1);
+            }
+            webClient.put()
+                .uri(endpoint + "/sessions/{sessionId}/parts/{index}", sessionId, index)
+                .header(CHECKSUM_HEADER, checksum)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(length)
+                // The ranged stream is read in small buffers through the link budget and closed once the body has been sent;
+                // pacing blocks, so the reads run off the event loop
+                .body(BodyInserters.fromDataBuffers(DataBufferUtils.readInputStream(
+                        () -> linkBudgetService.throttle(target, openRange(objectName, offset, length), sent),
+                        DefaultDataBufferFactory.sharedInstance, STREAM_BUFFER_SIZE)
+                    .subscribeOn(Schedulers.boundedElastic())))
+                .retrieve()
+                .toBodilessEntity()
+                .block(partTimeout(target, length));
+            return null;
+        });
+    }
+
+    // A paced part needs length / (its share of the link's slowest budget); twice that leaves room for a budget
+    // change mid-part. part-timeout-seconds is the floor, and the whole timeout on an unlimited link
+    private Duration partTimeout(Organization target, long length) {
+        ReplicationConfig.Link link = replicationConfig.linkFor(target);
+        long budget = 0;
+        for (long candidate : new long[] {link.getBytesPerSecond(), link.getOffPeakBytesPerSecond()}) {
+            if (candidate > 0 && (budget == 0 || candidate < budget)) {
+                budget = candidate;
+            }
+        }
+        long floor = replicationConfig.getPartTimeoutSeconds();
+        if (budget == 0) {
+            return Duration.ofSeconds(floor);
+        }
+        long share = Math.max(1, budget / replicationConfig.getParallelParts());
+        return Duration.ofSeconds(Math.max(floor, 2 * ((length + share - 1) / share)));
+    }
+
+    private String hashRange(String objectName, long offset, long length) throws Exception {
+        MessageDigest digest = RenditionSetService.newDigest();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream inputStream = new DigestInputStream(openRange(objectName, offset, length), digest)) {
+            while (inputStream.read(buffer) != -1) {
+                // Digest is updated as the range is read
+            }
+        }
+        return RenditionSetService.hex(digest.digest());
+    }
+
+    private InputStream openRange(String objectName, long offset, long length) throws Exception {
+        return minioClient.getObject(
+            GetObjectArgs.builder()
+                .bucket(videoProcessingConfig.getTempDir())
+                .object(objectName)
+                .offset(offset)
+                .length(length)
+                .build()
+        );
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        transferExecutor.shutdownNow();
+        partExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,66 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.QueueConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RetryTopicPublisher {
+    public static final String ATTEMPT_HEADER = "retry-attempt";
+    public static final String DUE_AT_HEADER = "retry-due-at";
+    public static final String ERROR_HEADER = "retry-error";
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final QueueConfig queueConfig;
+
+    // Sends a failed job or segment to the retry topic for its next attempt (attempt = retries already made).
+    // Returns false once the retries are used up; the record is then parked on the dead-letter topic instead.
+    public boolean retry(String key, Object payload, int attempt, Exception e) {
+        List<Long> delays = queueConfig.getRetryDelaysMs();
+        boolean exhausted = attempt >= delays.size();
+        String topic = exhausted ? queueConfig.getDeadLetterTopic() : queueConfig.retryTopic(attempt);
+
+        ProducerRecord<String, Object> record = new ProducerRecord<>(topic, key, payload);
+        record.headers().add(ATTEMPT_HEADER, String.valueOf(attempt + 1).getBytes(StandardCharsets.UTF_8));
+        if (!exhausted) {
+            long dueAt = System.currentTimeMillis() + delays.get(attempt);
+            record.headers().add(DUE_AT_HEADER, String.valueOf(dueAt).getBytes(StandardCharsets.UTF_8));
+        }
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+        record.headers().add(ERROR_HEADER, error.getBytes(StandardCharsets.UTF_8));
+        kafkaTemplate.send(record);
+
+        if (exhausted) {
+            log.warn("Retries exhausted after {} attempts, parked on {}", attempt + 1, topic);
+        } else {
+            log.info("Scheduled retry {} of {} on {} in {} ms", attempt + 1, delays.size(), topic, delays.get(attempt));
+        }
+        return !exhausted;
+    }
+
+    // Whether a record that has been retried this often gets another retry rather than the dead-letter topic
+    public boolean hasRetry(int attempt) {
+        return attempt < queueConfig.getRetryDelaysMs().size();
+    }
+
+    public static int attempt(byte[] header) {
+        return header == null ? 0 : Integer.parseInt(new String(header, StandardCharsets.UTF_8));
+    }
+
+    // Milliseconds until the record is due, 0 once it may run
+    public static long remaining(byte[] dueAtHeader) {
+        if (dueAtHeader == null) {
+            return 0;
+        }
+        long dueAt = Long.parseLong(new String(dueAtHeader, StandardCharsets.UTF_8));
+        return Math.max(0, dueAt - System.currentTimeMillis());
+    }
+}
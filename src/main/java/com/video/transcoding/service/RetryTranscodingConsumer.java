@@ -0,0 +1,86 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.dto.SegmentWorkItem;
+import com.video.transcoding.dto.TranscodingRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.annotation.KafkaHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+// Retry lane. Records sit in their delay topic until due, then only the failed piece is redone:
+// a job skips the renditions its checkpoint already has, a segment work item is a single piece to begin with.
+@KafkaListener(
+    id = RetryTranscodingConsumer.LISTENER_ID,
+    topics = "#{@queueConfig.retryTopics()}",
+    groupId = "video-transcoding-retry-group",
+    containerFactory = "retryListenerContainerFactory"
+)
+public class RetryTranscodingConsumer {
+    public static final String LISTENER_ID = "retry-transcoding";
+
+    private final TranscodingService transcodingService;
+    private final PartitionDeferrer partitionDeferrer;
+
+    @KafkaHandler
+    public void retry(TranscodingRequest request,
+                      @Header(RetryTopicPublisher.ATTEMPT_HEADER) byte[] attempt,
+                      @Header(RetryTopicPublisher.DUE_AT_HEADER) byte[] dueAt,
+                      @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                      @Header(KafkaHeaders.RECEIVED_PARTITION_ID) int partition,
+                      @Header(KafkaHeaders.OFFSET) long offset,
+                      Consumer<?, ?> consumer,
+                      Acknowledgment acknowledgment) {
+        if (deferred(dueAt, new TopicPartition(topic, partition), offset, consumer)) {
+            return;
+        }
+
+        log.info("Retrying video: {} (retry {})", request.getVideoId(), RetryTopicPublisher.attempt(attempt));
+        try {
+            transcodingService.processVideo(request, RetryTopicPublisher.attempt(attempt));
+        } finally {
+            acknowledgment.acknowledge();
+        }
+    }
+
+    @KafkaHandler
+    public void retrySegment(SegmentWorkItem item,
+                             @Header(RetryTopicPublisher.ATTEMPT_HEADER) byte[] attempt,
+                             @Header(RetryTopicPublisher.DUE_AT_HEADER) byte[] dueAt,
+                             @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                             @Header(KafkaHeaders.RECEIVED_PARTITION_ID) int partition,
+                             @Header(KafkaHeaders.OFFSET) long offset,
+                             Consumer<?, ?> consumer,
+                             Acknowledgment acknowledgment) {
+        if (deferred(dueAt, new TopicPartition(topic, partition), offset, consumer)) {
+            return;
+        }
+
+        log.info("Retrying segment {}/{} ({}) of video: {} (retry {})", item.getSegmentIndex() + 1, item.getSegmentCount(),
+            item.getQuality(), item.getVideoId(), RetryTopicPublisher.attempt(attempt));
+        try {
+            transcodingService.processSegment(item, RetryTopicPublisher.attempt(attempt));
+        } finally {
+            acknowledgment.acknowledge();
+        }
+    }
+
+    // Only the partition of a record that isn't due waits, so a long retry-2 wait never holds back
+    // retry-0 records that are already due
+    private boolean deferred(byte[] dueAt, TopicPartition partition, long offset, Consumer<?, ?> consumer) {
+        long wait = RetryTopicPublisher.remaining(dueAt);
+        if (wait <= 0) {
+            return false;
+        }
+        partitionDeferrer.defer(LISTENER_ID, partition, offset, consumer, wait);
+        return true;
+    }
+}
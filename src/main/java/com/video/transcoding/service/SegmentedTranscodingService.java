@@ -0,0 +1,329 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.QueueConfig;
+import com.video.transcoding.config.VideoProcessingConfig;
+import com.video.transcoding.dto.SegmentWorkItem;
+import com.video.transcoding.dto.TranscodingRequest;
+import com.video.transcoding.model.SegmentedJob;
+import com.video.transcoding.model.Video;
+import com.video.transcoding.repository.SegmentedJobRepository;
+import io.minio.*;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SegmentedTranscodingService {
+    private final MinioClient minioClient;
+    private final MongoTemplate mongoTemplate;
+    private final SegmentedJobRepository segmentedJobRepository;
+    private final VideoProcessingConfig videoProcessingConfig;
+    private final QueueConfig queueConfig;
+    private final KafkaTemplate<String, SegmentWorkItem> kafkaTemplate;
+    private final FfmpegService ffmpegService;
+    private final RenditionUploader renditionUploader;
+    private final TranscodingScheduler transcodingScheduler;
+    private final WebSocketService webSocketService;
+
+    // Segments are assembled into progressive MP4s, so HLS packaging always runs on a single node
+    public boolean shouldDistribute(Path source) throws Exception {
+        VideoProcessingConfig.Distributed distributed = videoProcessingConfig.getDistributed();
+        return distributed.isEnabled()
+            && videoProcessingConfig.getPackaging() == VideoProcessingConfig.Packaging.PROGRESSIVE
+            && Files.size(source) >= distributed.getMinSourceSize();
+    }
+
+    public void split(TranscodingRequest request, Path source, String contentHash, Video.SourceInfo sourceInfo,
+                      List<VideoProcessingConfig.Quality> ladder) throws Exception {
+        String videoId = request.getVideoId();
+        Path segmentDir = Path.of(videoProcessingConfig.getTempDir()).resolve(videoId + "_segments");
+        Files.createDirectories(segmentDir);
+
+        try {
+            // Stream copy can only cut on keyframes, so every segment decodes on its own.
+            // Segments carry video only: AAC encoded per segment would leave priming gaps at every join
+            ffmpegService.run(List.of(
+                "ffmpeg", "-y", "-nostdin", "-i", source.toString(),
+                "-map", "0:v:0", "-an", "-c", "copy",
+                "-f", "segment",
+                "-segment_time", String.valueOf(videoProcessingConfig.getDistributed().getSegmentDuration()),
+                "-reset_timestamps", "1",
+                segmentDir.resolve("seg_%05d.mkv").toString()
+            ));
+
+            List<Path> segments;
+            try (Stream<Path> files = Files.list(segmentDir)) {
+                segments = files.sorted().collect(Collectors.toList());
+            }
+            if (segments.isEmpty()) {
+                throw new Exception("FFmpeg produced no segments for video: " + videoId);
+            }
+
+            for (int i = 0; i < segments.size(); i++) {
+                renditionUploader.upload(segments.get(i).toFile(), sourceSegmentObject(videoId, i));
+            }
+
+            // One continuous audio track for the whole source, muxed into every assembled rendition
+            String audioObject = null;
+            if (sourceInfo.getAudioCodec() != null) {
+                Path audio = segmentDir.resolve("audio.m4a");
+                List<String> command = new ArrayList<>(List.of(
+                    "ffmpeg", "-y", "-nostdin", "-i", source.toString(), "-map", "0:a:0"));
+                command.addAll(ffmpegService.audioArgs());
+                command.add(audio.toString());
+                ffmpegService.run(command);
+                audioObject = audioObject(videoId);
+                renditionUploader.upload(audio.toFile(), audioObject);
+            }
+
+            List<String> qualities = ladder.stream()
+                .map(VideoProcessingConfig.Quality::getName)
+                .collect(Collectors.toList());
+
+            SegmentedJob job = new SegmentedJob();
+            job.setId(videoId);
+            job.setUserId(request.getUserId());
+            job.setExtension(request.getExtension());
+            job.setContentHash(contentHash);
+            job.setSegmentCount(segments.size());
+            job.setQualities(qualities);
+            job.setSource(sourceInfo);
+            job.setAudioObjectName(audioObject);
+            job.setStatus("SPLIT");
+            job.setCreatedAt(LocalDateTime.now());
+            job.setUpdatedAt(LocalDateTime.now());
+            segmentedJobRepository.save(job);
+
+            // One work item per segment x quality, picked up by whichever consumer is free
+            for (int i = 0; i < segments.size(); i++) {
+                for (String quality : qualities) {
+                    SegmentWorkItem item = new SegmentWorkItem();
+                    item.setVideoId(videoId);
+                    item.setUserId(request.getUserId());
+                    item.setOriginalFileName(request.getOriginalFileName());
+                    item.setExtension(request.getExtension());
+                    item.setSegmentIndex(i);
+                    item.setSegmentCount(segments.size());
+                    item.setQuality(quality);
+                    item.setSourceObjectName(sourceSegmentObject(videoId, i));
+                    item.setTenantId(request.getTenantId());
+                    item.setPriority(request.getPriority());
+                    String topic = TenantShareService.BULK.equals(request.getPriority())
+                        ? queueConfig.getBulkTopic()
+                        : queueConfig.getInteractiveTopic();
+                    // Unkeyed so a video's segments spread over every partition and consumer
+                    kafkaTemplate.send(topic, item);
+                }
+            }
+            log.info("Split video {} into {} segments for {} qualities", videoId, segments.size(), qualities.size());
+        } finally {
+            FileSystemUtils.deleteRecursively(segmentDir);
+        }
+    }
+
+    // Returns the job once every rendition has been assembled, null while work is still outstanding
+    public SegmentedJob processSegment(SegmentWorkItem item) throws Exception {
+        String videoId = item.getVideoId();
+        SegmentedJob current = segmentedJobRepository.findById(videoId).orElse(null);
+        if (current == null || "FAILED".equals(current.getStatus())) {
+            // Another segment already failed the job (or it was removed); the rest of its items are dropped unencoded
+            log.info("Skipping segment {} ({}) of video {}: job is {}", item.getSegmentIndex(), item.getQuality(), videoId,
+                current == null ? "gone" : "FAILED");
+            return null;
+        }
+        VideoProcessingConfig.Quality quality = findQuality(item.getQuality());
+        Path workDir = Path.of(videoProcessingConfig.getTempDir())
+            .resolve(videoId + "_" + quality.getName() + "_" + item.getSegmentIndex());
+        Files.createDirectories(workDir);
+
+        try {
+            Path input = workDir.resolve("source.mkv");
+            Path output = workDir.resolve("encoded.mp4");
+            download(item.getSourceObjectName(), input);
+
+            List<String> command = new ArrayList<>(List.of(
+                "ffmpeg", "-y", "-nostdin", "-i", input.toString(),
+                "-vf", "scale=-2:" + quality.getHeight()
+            ));
+            command.addAll(ffmpegService.encoderArgs(quality));
+            command.add("-an");
+            command.add(output.toString());
+            transcodingScheduler.execute(transcodingScheduler.threadsFor(quality), () -> {
+                ffmpegService.run(command);
+                return null;
+            });
+
+            renditionUploader.upload(output.toFile(), encodedSegmentObject(videoId, quality.getName(), item.getSegmentIndex()));
+        } finally {
+            FileSystemUtils.deleteRecursively(workDir);
+        }
+
+        String key = quality.getName() + ":" + item.getSegmentIndex();
+        SegmentedJob job = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(videoId).and("completedSegments").ne(key)),
+            new Update().addToSet("completedSegments", key).set("updatedAt", LocalDateTime.now()),
+            FindAndModifyOptions.options().returnNew(true),
+            SegmentedJob.class
+        );
+        if (job == null) {
+            // Redelivered item: the segment is already recorded, but a crashed assembler may have left work behind
+            job = segmentedJobRepository.findById(videoId)
+                .orElseThrow(() -> new RuntimeException("Segmented job not found: " + videoId));
+        } else {
+            int total = job.getSegmentCount() * job.getQualities().size();
+            int progress = Math.min(99, job.getCompletedSegments().size() * 100 / total);
+            webSocketService.sendProgress(item.getUserId(), videoId, "TRANSCODING", progress);
+        }
+
+        long encoded = job.getCompletedSegments().stream()
+            .filter(done -> done.startsWith(quality.getName() + ":"))
+            .count();
+        if (encoded < job.getSegmentCount() || job.getAssembledQualities().contains(quality.getName())) {
+            return null;
+        }
+
+        // This worker recorded the last segment of the rendition, so it stitches the rendition together
+        Video.RenditionManifest manifest = assemble(job, quality);
+        job = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(videoId)),
+            new Update()
+                .addToSet("assembledQualities", quality.getName())
+                .set("manifests." + quality.getName(), manifest)
+                .set("updatedAt", LocalDateTime.now()),
+            FindAndModifyOptions.options().returnNew(true),
+            SegmentedJob.class
+        );
+        if (job == null || job.getAssembledQualities().size() < job.getQualities().size()) {
+            return null;
+        }
+
+        // Exactly one worker flips the job to COMPLETED and writes the Video document; a FAILED job stays failed
+        SegmentedJob completed = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(videoId).and("status").nin("COMPLETED", "FAILED")),
+            new Update().set("status", "COMPLETED").set("updatedAt", LocalDateTime.now()),
+            FindAndModifyOptions.options().returnNew(true),
+            SegmentedJob.class
+        );
+        if (completed != null) {
+            removeSegmentObjects(videoId);
+        }
+        return completed;
+    }
+
+    // True only for the call that failed the job, so the failure is reported once however many segments give up
+    public boolean markFailed(String videoId, Exception e) {
+        return mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(videoId).and("status").nin("COMPLETED", "FAILED")),
+            new Update().set("status", "FAILED").set("errorMessage", e.getMessage()).set("updatedAt", LocalDateTime.now()),
+            SegmentedJob.class
+        ).getModifiedCount() > 0;
+    }
+
+    private Video.RenditionManifest assemble(SegmentedJob job, VideoProcessingConfig.Quality quality) throws Exception {
+        String videoId = job.getId();
+        Path workDir = Path.of(videoProcessingConfig.getTempDir()).resolve(videoId + "_" + quality.getName() + "_concat");
+        Files.createDirectories(workDir);
+
+        try {
+            StringBuilder concatList = new StringBuilder();
+            for (int i = 0; i < job.getSegmentCount(); i++) {
+                Path part = workDir.resolve(String.format("seg_%05d.mp4", i));
+                download(encodedSegmentObject(videoId, quality.getName(), i), part);
+                concatList.append("file '").append(part.toAbsolutePath()).append("'\n");
+            }
+            Path listFile = workDir.resolve("segments.txt");
+            Files.writeString(listFile, concatList);
+
+            // Same file name and object layout as a single-node rendition
+            Path output = workDir.resolve(videoId + "_" + quality.getName() + job.getExtension());
+            List<String> command = new ArrayList<>(List.of(
+                "ffmpeg", "-y", "-nostdin",
+                "-f", "concat", "-safe", "0", "-i", listFile.toString()
+            ));
+            if (job.getAudioObjectName() != null) {
+                // Joined video plus the audio encoded once from the whole source, both stream-copied
+                Path audio = workDir.resolve("audio.m4a");
+                download(job.getAudioObjectName(), audio);
+                command.addAll(List.of("-i", audio.toString(), "-map", "0:v:0", "-map", "1:a:0"));
+            }
+            command.addAll(List.of("-c", "copy", "-movflags", "+faststart", output.toString()));
+            ffmpegService.run(command);
+            Video.ManifestObject object = renditionUploader.upload(output.toFile(), videoId + "/" + output.getFileName());
+            log.info("Assembled {} segments of video {} at {}", job.getSegmentCount(), videoId, quality.getName());
+            return ffmpegService.describeRendition(output, List.of(object));
+        } finally {
+            FileSystemUtils.deleteRecursively(workDir);
+        }
+    }
+
+    private void download(String objectName, Path target) throws Exception {
+        try (InputStream inputStream = minioClient.getObject(
+                GetObjectArgs.builder()
+                    .bucket(videoProcessingConfig.getTempDir())
+                    .object(objectName)
+                    .build())) {
+            Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void removeSegmentObjects(String videoId) {
+        try {
+            Iterable<Result<Item>> objects = minioClient.listObjects(
+                ListObjectsArgs.builder()
+                    .bucket(videoProcessingConfig.getTempDir())
+                    .prefix(videoId + "/segments/")
+                    .recursive(true)
+                    .build()
+            );
+            for (Result<Item> object : objects) {
+                minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                        .bucket(videoProcessingConfig.getTempDir())
+                        .object(object.get().objectName())
+                        .build()
+                );
+            }
+        } catch (Exception e) {
+            log.warn("Could not remove segment objects of video {}: {}", videoId, e.getMessage());
+        }
+    }
+
+    private VideoProcessingConfig.Quality findQuality(String name) {
+        return videoProcessingConfig.getQualities().stream()
+            .filter(q -> q.getName().equals(name))
+            .findFirst()
+            .orElseThrow(() -> new RuntimeException("Quality not found: " + name));
+    }
+
+    private String sourceSegmentObject(String videoId, int index) {
+        return String.format("%s/segments/source/seg_%05d.mkv", videoId, index);
+    }
+
+    private String audioObject(String videoId) {
+        return videoId + "/segments/audio/audio.m4a";
+    }
+
+    private String encodedSegmentObject(String videoId, String quality, int index) {
+        return String.format("%s/segments/%s/seg_%05d.mp4", videoId, quality, index);
+    }
+}
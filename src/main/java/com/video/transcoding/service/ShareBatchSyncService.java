@@ -0,0 +1,136 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.ShareConfig;
+import com.video.transcoding.dto.ShareBatchSyncRequest;
+import com.video.transcoding.model.Organization;
+import com.video.transcoding.model.ShareBatchSync;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Delivers bulk share batches to other organizations; a batch stays in the outbox until the target accepts it,
+// so a target that is down gets it later instead of never
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ShareBatchSyncService {
+    // A claimed batch is not picked up by another node for this long; well above the send timeout
+    private static final Duration CLAIM_LEASE = Duration.ofMinutes(5);
+    private static final Duration SEND_TIMEOUT = Duration.ofMinutes(2);
+
+    private final MongoTemplate mongoTemplate;
+    private final WebClient webClient;
+    private final ShareConfig shareConfig;
+    private final ReplicationQueueService replicationQueueService;
+
+    public String save(Organization target, ShareBatchSyncRequest request) {
+        ShareBatchSync sync = new ShareBatchSync();
+        sync.setId(UUID.randomUUID().toString());
+        sync.setTargetOrganization(target);
+        sync.setRequest(request);
+        sync.setStatus("PENDING");
+        sync.setNotBefore(LocalDateTime.now());
+        sync.setCreatedAt(LocalDateTime.now());
+        sync.setUpdatedAt(LocalDateTime.now());
+        return mongoTemplate.insert(sync).getId();
+    }
+
+    // First attempt, right after the shares were written
+    public void deliver(String id) {
+        ShareBatchSync sync = claim(id);
+        if (sync != null) {
+            send(sync);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${video.share.sync.batch-retry-scan-ms:30000}")
+    public void retryDue() {
+        ShareBatchSync sync;
+        while ((sync = claim(null)) != null) {
+            send(sync);
+        }
+    }
+
+    // The given batch, or the longest-waiting due one when id is null
+    private ShareBatchSync claim(String id) {
+        LocalDateTime now = LocalDateTime.now();
+        Criteria criteria = Criteria.where("status").is("PENDING").and("notBefore").lte(now);
+        if (id != null) {
+            criteria.and("_id").is(id);
+        }
+        return mongoTemplate.findAndModify(
+            Query.query(criteria).with(Sort.by("notBefore")),
+            new Update().inc("attempts", 1).set("notBefore", now.plus(CLAIM_LEASE)).set("updatedAt", now),
+            FindAndModifyOptions.options().returnNew(true),
+            ShareBatchSync.class
+        );
+    }
+
+    private void send(ShareBatchSync sync) {
+        Organization target = sync.getTargetOrganization();
+        ShareBatchSyncRequest request = sync.getRequest();
+        String targetEndpoint = shareConfig.getEndpoint(target);
+        if (targetEndpoint == null) {
+            log.error("No endpoint configured for organization: {}", target);
+            update(sync, new Update().set("status", "FAILED").set("errorMessage", "No endpoint configured"));
+            return;
+        }
+
+        try {
+            webClient.post()
+                    .uri(targetEndpoint + "/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(request)
+                    .retrieve()
+                    .bodyToMono(Void.class)
+                    .block(SEND_TIMEOUT);
+        } catch (Exception e) {
+            ShareConfig.Sync settings = shareConfig.getSync();
+            if (sync.getAttempts() >= settings.getBatchMaxAttempts()) {
+                log.error("Giving up syncing {} shares with organization {} after {} attempts",
+                    request.getShares().size(), target, sync.getAttempts(), e);
+                update(sync, new Update().set("status", "FAILED").set("errorMessage", e.getMessage()));
+                return;
+            }
+            long delaySeconds = settings.getBatchRetryDelaySeconds() << Math.min(sync.getAttempts() - 1, 10);
+            log.warn("Error syncing {} shares with organization {}, retrying in {} s: {}",
+                request.getShares().size(), target, delaySeconds, e.getMessage());
+            update(sync, new Update()
+                .set("errorMessage", e.getMessage())
+                .set("notBefore", LocalDateTime.now().plusSeconds(delaySeconds)));
+            return;
+        }
+        update(sync, new Update().set("status", "SENT").set("errorMessage", null));
+        log.info("Synced {} shares of {} videos with organization: {}", request.getShares().size(), request.getVideos().size(), target);
+
+        // Recipients can open the share as soon as the target has it, so its bytes go ahead of background work
+        for (ShareBatchSyncRequest.SyncedVideo video : request.getVideos()) {
+            try {
+                replicationQueueService.enqueue(video.getVideoId(), target, ReplicationQueueService.INTERACTIVE);
+            } catch (Exception e) {
+                log.error("Could not queue replication of video {} to {}", video.getVideoId(), target, e);
+            }
+        }
+    }
+
+    private void update(ShareBatchSync sync, Update update) {
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(sync.getId())),
+            update.set("updatedAt", LocalDateTime.now()),
+            ShareBatchSync.class
+        );
+    }
+}
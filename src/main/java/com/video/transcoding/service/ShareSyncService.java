@@ -1,27 +1,58 @@
 package com.video.transcoding.service;
 
+import com.mongodb.bulk.BulkWriteError;
+import com.video.transcoding.config.ShareConfig;
 import com.video.transcoding.model.Organization;
 import com.video.transcoding.model.ShareSync;
 import com.video.transcoding.model.VideoShare;
 import com.video.transcoding.repository.ShareSyncRepository;
-import com.video.transcoding.repository.VideoShareRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ShareSyncService {
     private final ShareSyncRepository shareSyncRepository;
-    private final VideoShareRepository videoShareRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ShareConfig shareConfig;
     private final Organization currentOrg;
 
+    // A single drainer: change events only wake it, so a burst of inserts collapses into a few batched passes
+    private final ExecutorService drainExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "share-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+    private MessageListenerContainer changeStreamContainer;
+
     public ShareSync createShareSync(VideoShare share) {
         ShareSync sync = new ShareSync();
         sync.setId(UUID.randomUUID().toString());
@@ -33,48 +64,150 @@ public class ShareSyncService {
         sync.setTargetOrganization(share.getSharedWithOrganization());
         sync.setCreatedAt(LocalDateTime.now());
         sync.setExpiresAt(share.getExpiresAt());
-        sync.setIsProcessed(false);
+        sync.setProcessed(false);
         sync.setStatus("PENDING");
-        
+
         return shareSyncRepository.save(sync);
     }
 
-    @Scheduled(fixedRate = 60000) // Run every minute
+    @PostConstruct
+    public void watchShareSyncs() {
+        if (!shareConfig.getSync().isChangeStream()) {
+            return;
+        }
+        // Only inserts addressed to this organization wake the drainer
+        ChangeStreamRequest<ShareSync> request = ChangeStreamRequest.<ShareSync>builder(message -> requestDrain())
+            .collection("share_syncs")
+            .filter(Aggregation.newAggregation(Aggregation.match(
+                Criteria.where("operationType").is("insert")
+                    .and("fullDocument.targetOrganization").is(currentOrg.name()))))
+            .build();
+
+        changeStreamContainer = new DefaultMessageListenerContainer(mongoTemplate);
+        // Without a replica set the stream fails to open; the safety scan still picks the shares up
+        changeStreamContainer.register(request, ShareSync.class,
+            e -> log.warn("Share sync change stream error, relying on the periodic scan", e));
+        changeStreamContainer.start();
+        log.info("Watching share_syncs for shares addressed to {}", currentOrg);
+
+        // Whatever arrived while this node was down
+        requestDrain();
+    }
+
+    // Safety net for missed change events
+    @Scheduled(fixedDelayString = "${video.share.sync.safety-scan-ms:60000}")
+    public void scanPendingShares() {
+        requestDrain();
+    }
+
+    private void requestDrain() {
+        if (drainRequested.compareAndSet(false, true)) {
+            drainExecutor.execute(() -> {
+                // Cleared first, so an insert landing mid-pass queues one more pass
+                drainRequested.set(false);
+                try {
+                    processPendingShares();
+                } catch (Exception e) {
+                    log.error("Error processing pending share syncs", e);
+                }
+            });
+        }
+    }
+
+    // Keyset pass over the pending syncs in bounded batches; each batch is one bulk upsert plus one status update
     public void processPendingShares() {
-        List<ShareSync> pendingShares = shareSyncRepository.findByTargetOrganizationAndIsProcessedFalse(currentOrg);
-        
-        for (ShareSync sync : pendingShares) {
-            try {
-                // Create VideoShare in current organization
-                VideoShare share = new VideoShare();
-                share.setId(UUID.randomUUID().toString());
-                share.setVideoId(sync.getVideoId());
-                share.setSharedByUserId(sync.getSharedByUserId());
-                share.setSharedWithUsername(sync.getSharedWithUsername());
-                share.setSharedWithIp(sync.getSharedWithIp());
-                share.setSharedWithOrganization(sync.getSourceOrganization());
-                share.setSameOrganization(false);
-                share.setCreatedAt(sync.getCreatedAt());
-                share.setExpiresAt(sync.getExpiresAt());
-                share.setActive(true);
-                
-                videoShareRepository.save(share);
-                
-                // Mark sync as processed
-                sync.setIsProcessed(true);
-                sync.setStatus("PROCESSED");
-                shareSyncRepository.save(sync);
-                
-                log.info("Successfully processed share sync: {}", sync.getId());
-            } catch (Exception e) {
-                log.error("Error processing share sync: {}", sync.getId(), e);
-                sync.setStatus("FAILED");
-                sync.setErrorMessage(e.getMessage());
-                shareSyncRepository.save(sync);
+        int batchSize = shareConfig.getSync().getBatchSize();
+        String lastId = null;
+        while (true) {
+            // FAILED syncs (revoked, or out of attempts) are never drained again
+            Criteria criteria = Criteria.where("targetOrganization").is(currentOrg).and("isProcessed").is(false)
+                .and("status").ne("FAILED");
+            if (lastId != null) {
+                criteria.and("_id").gt(lastId);
+            }
+            List<ShareSync> batch = mongoTemplate.find(
+                Query.query(criteria).with(Sort.by("_id")).limit(batchSize), ShareSync.class);
+            if (batch.isEmpty()) {
+                return;
+            }
+            processBatch(batch);
+            if (batch.size() < batchSize) {
+                return;
             }
+            lastId = batch.get(batch.size() - 1).getId();
         }
     }
 
+    private void processBatch(List<ShareSync> batch) {
+        BulkOperations shares = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VideoShare.class);
+        for (ShareSync sync : batch) {
+            // The share takes the sync's id, so a batch replayed after a crash overwrites instead of duplicating
+            shares.replaceOne(Query.query(Criteria.where("_id").is(sync.getId())), toVideoShare(sync),
+                FindAndReplaceOptions.options().upsert());
+        }
+
+        Map<String, String> failed = new HashMap<>();
+        try {
+            shares.execute();
+        } catch (BulkOperationException e) {
+            // Unordered: the rest of the batch was still written
+            for (BulkWriteError error : e.getErrors()) {
+                failed.put(batch.get(error.getIndex()).getId(), error.getMessage());
+            }
+        }
+
+        List<String> processed = new ArrayList<>();
+        for (ShareSync sync : batch) {
+            if (!failed.containsKey(sync.getId())) {
+                processed.add(sync.getId());
+            }
+        }
+        if (!processed.isEmpty()) {
+            // Mark sync as processed
+            mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(processed)),
+                new Update().set("isProcessed", true).set("status", "PROCESSED"),
+                ShareSync.class
+            );
+        }
+        if (!failed.isEmpty()) {
+            int maxAttempts = shareConfig.getSync().getMaxAttempts();
+            BulkOperations syncs = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ShareSync.class);
+            for (ShareSync sync : batch) {
+                String message = failed.get(sync.getId());
+                if (message == null) {
+                    continue;
+                }
+                Update update = new Update().inc("attempts", 1).set("errorMessage", message);
+                if (sync.getAttempts() + 1 >= maxAttempts) {
+                    log.error("Giving up on share sync {} after {} attempts: {}", sync.getId(), sync.getAttempts() + 1, message);
+                    update.set("status", "FAILED").set("isProcessed", true);
+                } else {
+                    log.warn("Error processing share sync {} (attempt {}): {}", sync.getId(), sync.getAttempts() + 1, message);
+                }
+                syncs.updateOne(Query.query(Criteria.where("_id").is(sync.getId())), update);
+            }
+            syncs.execute();
+        }
+        log.info("Processed {} share syncs ({} failed)", processed.size(), failed.size());
+    }
+
+    private VideoShare toVideoShare(ShareSync sync) {
+        // Create VideoShare in current organization
+        VideoShare share = new VideoShare();
+        share.setId(sync.getId());
+        share.setVideoId(sync.getVideoId());
+        share.setSharedByUserId(sync.getSharedByUserId());
+        share.setSharedWithUsername(sync.getSharedWithUsername());
+        share.setSharedWithIp(sync.getSharedWithIp());
+        share.setSharedWithOrganization(sync.getSourceOrganization());
+        share.setSameOrganization(false);
+        share.setCreatedAt(sync.getCreatedAt());
+        share.setExpiresAt(sync.getExpiresAt());
+        share.setActive(true);
+        return share;
+    }
+
     public void revokeShareSync(String videoId) {
         List<ShareSync> syncs = shareSyncRepository.findBySourceOrganizationAndStatus(currentOrg, "PENDING");
         for (ShareSync sync : syncs) {
@@ -85,4 +218,12 @@ public class ShareSyncService {
             }
         }
     }
-} 
\ No newline at end of file
+
+    @PreDestroy
+    public void shutdown() {
+        if (changeStreamContainer != null) {
+            changeStreamContainer.stop();
+        }
+        drainExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,116 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.UploadConfig;
+import com.video.transcoding.config.VideoProcessingConfig;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StreamingUploadService {
+    private final VideoProcessingConfig videoProcessingConfig;
+    private final WebSocketService webSocketService;
+    private final UploadConfig uploadConfig;
+
+    public static class UploadTooLargeException extends IllegalArgumentException {
+        public UploadTooLargeException(long limit) {
+            super("Upload exceeds the maximum file size of " + limit + " bytes");
+        }
+    }
+
+    @Data
+    public static class IngestedFile {
+        private String originalFileName;
+        private String extension;
+        private Path path;
+        private long size;
+        private String contentHash;
+    }
+
+    // Parses the multipart body once and writes the "file" part through one FileChannel into temp-dir,
+    // where the transcoder picks it up without another copy
+    public IngestedFile ingest(HttpServletRequest request, String userId, String videoId) throws IOException {
+        String boundary = MultipartStreamParser.boundaryOf(request.getContentType());
+        long totalBytes = request.getContentLengthLong();
+        long maxFileSize = uploadConfig.getMaxFileSize();
+        // Rejected before a single byte is written when the client declares an oversized body
+        if (totalBytes > maxFileSize) {
+            throw new UploadTooLargeException(maxFileSize);
+        }
+
+        Path tempDir = Path.of(videoProcessingConfig.getTempDir());
+        Files.createDirectories(tempDir);
+
+        MultipartStreamParser parser = new MultipartStreamParser(request.getInputStream(), boundary);
+        Map<String, String> headers;
+        while ((headers = parser.nextPart()) != null) {
+            String disposition = headers.getOrDefault("content-disposition", "");
+            if (!"file".equals(MultipartStreamParser.dispositionParam(disposition, "name"))) {
+                continue;
+            }
+
+            String originalFileName = MultipartStreamParser.dispositionParam(disposition, "filename");
+            if (originalFileName == null || !originalFileName.contains(".")) {
+                throw new IllegalArgumentException("Uploaded file must have an extension");
+            }
+            String extension = originalFileName.substring(originalFileName.lastIndexOf("."));
+            Path filePath = tempDir.resolve(videoId + extension);
+
+            AtomicLong written = new AtomicLong();
+            // Hashed in the same pass as the write, for dedup of identical sources
+            MessageDigest digest = RenditionSetService.newDigest();
+            AtomicInteger lastProgress = new AtomicInteger();
+            try (FileChannel channel = FileChannel.open(filePath,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                parser.transferBody((buffer, offset, length) -> {
+                    // Chunked requests carry no Content-Length, so the limit is enforced on the bytes actually read
+                    if (written.get() + length > maxFileSize) {
+                        throw new UploadTooLargeException(maxFileSize);
+                    }
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, offset, length);
+                    while (chunk.hasRemaining()) {
+                        channel.write(chunk);
+                    }
+                    digest.update(buffer, offset, length);
+
+                    // Only whole-percent changes go out, not one message per chunk
+                    long bytesRead = written.addAndGet(length);
+                    if (totalBytes > 0) {
+                        int progress = (int) Math.min(99, (bytesRead * 100) / totalBytes);
+                        if (progress > lastProgress.getAndSet(progress)) {
+                            webSocketService.sendProgress(userId, videoId, "UPLOADING", progress);
+                        }
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(filePath);
+                throw e;
+            }
+
+            IngestedFile ingested = new IngestedFile();
+            ingested.setOriginalFileName(originalFileName);
+            ingested.setExtension(extension);
+            ingested.setPath(filePath);
+            ingested.setSize(written.get());
+            ingested.setContentHash(RenditionSetService.hex(digest.digest()));
+            log.info("Ingested {} ({} bytes) for video: {}", originalFileName, written.get(), videoId);
+            return ingested;
+        }
+        throw new IllegalArgumentException("Multipart request has no 'file' part");
+    }
+}
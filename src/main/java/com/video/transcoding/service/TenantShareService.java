@@ -0,0 +1,136 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.QueueConfig;
+import com.video.transcoding.model.Organization;
+import com.video.transcoding.model.TenantUsage;
+import org.bson.Document;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TenantShareService {
+    public static final String INTERACTIVE = "INTERACTIVE";
+    public static final String BULK = "BULK";
+
+    private final MongoTemplate mongoTemplate;
+    private final QueueConfig queueConfig;
+    private final Organization currentOrg;
+
+    // Shares belong to the paying account, not the individual uploader; otherwise an organization's
+    // weight would scale with how many of its users happen to upload at once
+    public String tenantOf(String userId) {
+        return queueConfig.getAccounts().getOrDefault(userId, currentOrg.name());
+    }
+
+    // Large sources and tenants that already have a backlog go to the bulk lane
+    public String classify(String tenantId, long sourceSize) {
+        if (sourceSize >= queueConfig.getBulkMinSize()) {
+            return BULK;
+        }
+        TenantUsage usage = mongoTemplate.findById(tenantId, TenantUsage.class);
+        if (usage != null) {
+            LocalDateTime expiredBefore = queuedExpiry();
+            long waiting = usage.getQueuedInteractive().stream()
+                .filter(job -> job.getQueuedAt() != null && job.getQueuedAt().isAfter(expiredBefore))
+                .count();
+            if (waiting >= queueConfig.getInteractiveBurst()) {
+                return BULK;
+            }
+        }
+        return INTERACTIVE;
+    }
+
+    public void interactiveQueued(String tenantId, String videoId) {
+        TenantUsage.QueuedJob job = new TenantUsage.QueuedJob();
+        job.setVideoId(videoId);
+        job.setQueuedAt(LocalDateTime.now());
+        updateUsage(tenantId, new Update().push("queuedInteractive", job));
+    }
+
+    // Keyed by video, so a redelivered record can't take another tenant's job off the count
+    public void interactiveStarted(String tenantId, String videoId) {
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(tenantId)),
+            new Update().pull("queuedInteractive", new Document("videoId", videoId)).set("updatedAt", LocalDateTime.now()),
+            TenantUsage.class
+        );
+    }
+
+    // queuedInteractive used to be a bare counter; those documents start over with an empty list
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateQueuedCounters() {
+        mongoTemplate.updateMulti(
+            Query.query(Criteria.where("queuedInteractive").not().type(4)),
+            new Update().set("queuedInteractive", List.of()),
+            TenantUsage.class
+        );
+    }
+
+    @Scheduled(fixedRate = 300000)
+    public void pruneExpiredQueued() {
+        Date expiredBefore = Date.from(queuedExpiry().atZone(ZoneId.systemDefault()).toInstant());
+        long pruned = mongoTemplate.updateMulti(
+            Query.query(Criteria.where("queuedInteractive.queuedAt").lt(expiredBefore)),
+            new Update().pull("queuedInteractive", new Document("queuedAt", new Document("$lt", expiredBefore))),
+            TenantUsage.class
+        ).getModifiedCount();
+        if (pruned > 0) {
+            log.warn("Dropped expired queued interactive jobs from {} tenants", pruned);
+        }
+    }
+
+    private LocalDateTime queuedExpiry() {
+        return LocalDateTime.now().minusNanos(queueConfig.getQueuedInteractiveExpiryMs() * 1_000_000);
+    }
+
+    // Admits a bulk job while the tenant runs fewer than its weighted share anywhere in the fleet
+    public boolean tryAcquireBulk(String tenantId, String videoId) {
+        int limit = Math.max(1, queueConfig.getBulkJobsPerWeight() * weightOf(tenantId));
+        updateUsage(tenantId, new Update());
+
+        // Admitted if already running (a redelivery) or the array has a free slot below the limit
+        Criteria hasRoom = new Criteria().orOperator(
+            Criteria.where("activeBulkJobs").is(videoId),
+            Criteria.where("activeBulkJobs." + (limit - 1)).exists(false)
+        );
+        TenantUsage usage = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(tenantId)).addCriteria(hasRoom),
+            new Update().addToSet("activeBulkJobs", videoId).set("updatedAt", LocalDateTime.now()),
+            FindAndModifyOptions.options().returnNew(true),
+            TenantUsage.class
+        );
+        return usage != null;
+    }
+
+    public void releaseBulk(String tenantId, String videoId) {
+        updateUsage(tenantId, new Update().pull("activeBulkJobs", videoId));
+    }
+
+    private int weightOf(String tenantId) {
+        return queueConfig.getWeights().getOrDefault(tenantId, 1);
+    }
+
+    private void updateUsage(String tenantId, Update update) {
+        mongoTemplate.upsert(
+            Query.query(Criteria.where("_id").is(tenantId)),
+            update.set("updatedAt", LocalDateTime.now()),
+            TenantUsage.class
+        );
+    }
+}
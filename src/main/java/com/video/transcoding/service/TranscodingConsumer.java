@@ -1,20 +1,43 @@
 package com.video.transcoding.service;
 
+import com.video.transcoding.dto.SegmentWorkItem;
 import com.video.transcoding.dto.TranscodingRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaHandler;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
+// Interactive lane. Each listener thread runs one job; its renditions share the node CPU budget via TranscodingScheduler.
+// Whole-video requests and segment work items share the topic and are told apart by the JSON type header.
+@KafkaListener(
+    id = TranscodingConsumer.LISTENER_ID,
+    topics = "${video.queue.interactive-topic:video-transcoding}",
+    groupId = "video-transcoding-group",
+    concurrency = "${video.processing.scheduler.max-concurrent-jobs:2}"
+)
 public class TranscodingConsumer {
+    public static final String LISTENER_ID = "interactive-transcoding";
+
     private final TranscodingService transcodingService;
+    private final TenantShareService tenantShareService;
 
-    @KafkaListener(topics = "video-transcoding", groupId = "video-transcoding-group")
+    @KafkaHandler
     public void consume(TranscodingRequest request) {
         log.info("Received transcoding request for video: {}", request.getVideoId());
+        if (request.getTenantId() != null) {
+            tenantShareService.interactiveStarted(request.getTenantId(), request.getVideoId());
+        }
         transcodingService.processVideo(request);
     }
-} 
\ No newline at end of file
+
+    @KafkaHandler
+    public void consumeSegment(SegmentWorkItem item) {
+        log.info("Received segment {}/{} ({}) of video: {}",
+            item.getSegmentIndex() + 1, item.getSegmentCount(), item.getQuality(), item.getVideoId());
+        transcodingService.processSegment(item);
+    }
+}
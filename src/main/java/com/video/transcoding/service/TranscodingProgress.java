@@ -0,0 +1,78 @@
+package com.video.transcoding.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Per-job progress across a rendition ladder, fed by FFmpeg -progress output
+public class TranscodingProgress {
+    private final WebSocketService webSocketService;
+    private final String userId;
+    private final String videoId;
+    private final long durationMicros;
+    private final List<String> qualities;
+    private final Map<String, Double> fractions = new LinkedHashMap<>();
+    private final Map<String, Long> etas = new LinkedHashMap<>();
+
+    public TranscodingProgress(WebSocketService webSocketService, String userId, String videoId,
+                               List<String> qualities, long durationMicros) {
+        this.webSocketService = webSocketService;
+        this.userId = userId;
+        this.videoId = videoId;
+        this.durationMicros = durationMicros;
+        this.qualities = List.copyOf(qualities);
+        for (String quality : qualities) {
+            fractions.put(quality, 0.0);
+        }
+    }
+
+    public FfmpegService.ProgressListener listener(String quality) {
+        if (durationMicros <= 0) {
+            return null;
+        }
+        return (outTimeMicros, speed) -> update(quality, outTimeMicros, speed);
+    }
+
+    // One listener shared by every rendition of a single-pass encode
+    public FfmpegService.ProgressListener listenerForAll() {
+        if (durationMicros <= 0) {
+            return null;
+        }
+        return (outTimeMicros, speed) -> {
+            for (String quality : qualities) {
+                update(quality, outTimeMicros, speed);
+            }
+        };
+    }
+
+    public void completed(String quality) {
+        update(quality, 1.0, 0L);
+    }
+
+    private void update(String quality, long outTimeMicros, double speed) {
+        double fraction = Math.min(1.0, (double) outTimeMicros / durationMicros);
+        Long eta = speed > 0 ? (long) ((durationMicros - Math.min(outTimeMicros, durationMicros)) / 1_000_000.0 / speed) : null;
+        update(quality, fraction, eta);
+    }
+
+    private void update(String quality, double fraction, Long eta) {
+        int renditionPercent;
+        int overallPercent;
+        Long overallEta = null;
+        synchronized (this) {
+            fractions.put(quality, fraction);
+            etas.put(quality, eta);
+            renditionPercent = (int) (fraction * 100);
+            overallPercent = (int) (fractions.values().stream().mapToDouble(Double::doubleValue).sum() * 100 / fractions.size());
+            // Renditions run side by side, so the job finishes with the slowest one
+            for (Map.Entry<String, Double> entry : fractions.entrySet()) {
+                Long renditionEta = etas.get(entry.getKey());
+                if (entry.getValue() < 1.0 && renditionEta != null) {
+                    overallEta = overallEta == null ? renditionEta : Math.max(overallEta, renditionEta);
+                }
+            }
+        }
+        webSocketService.sendProgress(userId, videoId, "TRANSCODING", quality, renditionPercent, eta);
+        webSocketService.sendProgress(userId, videoId, "TRANSCODING", null, overallPercent, overallEta);
+    }
+}
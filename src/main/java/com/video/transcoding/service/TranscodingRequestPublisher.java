@@ -0,0 +1,39 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.QueueConfig;
+import com.video.transcoding.dto.TranscodingRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TranscodingRequestPublisher {
+    private final KafkaTemplate<String, TranscodingRequest> kafkaTemplate;
+    private final QueueConfig queueConfig;
+    private final TenantShareService tenantShareService;
+
+    public void publish(TranscodingRequest request) {
+        if (request.getTenantId() == null) {
+            request.setTenantId(tenantShareService.tenantOf(request.getUserId()));
+        }
+        if (request.getPriority() == null) {
+            request.setPriority(tenantShareService.classify(request.getTenantId(), request.getSourceSize()));
+        }
+
+        String topic;
+        if (TenantShareService.BULK.equals(request.getPriority())) {
+            topic = queueConfig.getBulkTopic();
+        } else {
+            topic = queueConfig.getInteractiveTopic();
+            tenantShareService.interactiveQueued(request.getTenantId(), request.getVideoId());
+        }
+
+        // Gửi request vào Kafka topic; keyed by video so a tenant's jobs spread over every partition and consumer thread,
+        // letting it actually fill its weighted bulk share (the share itself is enforced fleet-wide in tenant_usage)
+        kafkaTemplate.send(topic, request.getVideoId(), request);
+        log.info("Queued {} transcoding request for video: {}", request.getPriority(), request.getVideoId());
+    }
+}
@@ -0,0 +1,120 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.VideoProcessingConfig;
+import com.video.transcoding.dto.SchedulerStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Service
+public class TranscodingScheduler {
+    private static final int MAX_THREADS_PER_ENCODE = 16;
+
+    private final VideoProcessingConfig videoProcessingConfig;
+    private final int cpuBudget;
+    // Fair so a wide 4K encode is not starved by a stream of small renditions
+    private final Semaphore cpuSlots;
+    private final ThreadPoolExecutor executor;
+    private final AtomicInteger activeEncodes = new AtomicInteger();
+
+    public TranscodingScheduler(VideoProcessingConfig videoProcessingConfig) {
+        this.videoProcessingConfig = videoProcessingConfig;
+        int configured = videoProcessingConfig.getScheduler().getCpuBudget();
+        this.cpuBudget = configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+        this.cpuSlots = new Semaphore(cpuBudget, true);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // Every running task holds at least one slot, so the pool never needs more threads than slots
+        this.executor = new ThreadPoolExecutor(
+            cpuBudget, cpuBudget, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "encode-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        log.info("Transcoding scheduler started with {} CPU slots", cpuBudget);
+    }
+
+    // x264 threads scale with output pixel count (360p/480p: 1, 720p: 2, 1080p: 4, 4K: 16), capped by the budget
+    public int threadsFor(VideoProcessingConfig.Quality quality) {
+        int threads = quality.getThreads();
+        if (threads <= 0) {
+            double scale = quality.getHeight() / 540.0;
+            threads = (int) Math.ceil(scale * scale);
+        }
+        return Math.max(1, Math.min(threads, Math.min(cpuBudget, MAX_THREADS_PER_ENCODE)));
+    }
+
+    // Runs the task once the requested CPU slots are free; they are held until the task returns
+    public <T> CompletableFuture<T> submit(int slots, Callable<T> task) {
+        int permits = Math.max(1, Math.min(slots, cpuBudget));
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                cpuSlots.acquire(permits);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.completeExceptionally(e);
+                return;
+            }
+            activeEncodes.incrementAndGet();
+            try {
+                future.complete(task.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            } finally {
+                activeEncodes.decrementAndGet();
+                cpuSlots.release(permits);
+            }
+        });
+        return future;
+    }
+
+    // Blocking variant of submit for callers with nothing else to overlap
+    public <T> T execute(int slots, Callable<T> task) throws Exception {
+        return await(submit(slots, task));
+    }
+
+    public <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // Surface the FFmpeg/MinIO failure itself rather than the wrapper
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public int getActiveEncodes() {
+        return activeEncodes.get();
+    }
+
+    public SchedulerStatus getStatus() {
+        SchedulerStatus status = new SchedulerStatus();
+        status.setCpuBudget(cpuBudget);
+        status.setUsedSlots(cpuBudget - cpuSlots.availablePermits());
+        status.setActiveEncodes(activeEncodes.get());
+        status.setQueueDepth(executor.getQueue().size() + cpuSlots.getQueueLength());
+        status.setMaxConcurrentJobs(videoProcessingConfig.getScheduler().getMaxConcurrentJobs());
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
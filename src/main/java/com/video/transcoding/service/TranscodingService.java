@@ -1,28 +1,39 @@
 package com.video.transcoding.service;
 
 import com.video.transcoding.config.VideoProcessingConfig;
+import com.video.transcoding.dto.SegmentWorkItem;
 import com.video.transcoding.dto.TranscodingRequest;
 import com.video.transcoding.dto.TranscodingResult;
+import com.video.transcoding.model.RenditionSet;
+import com.video.transcoding.model.SegmentedJob;
+import com.video.transcoding.model.TranscodingJob;
 import com.video.transcoding.model.Video;
 import com.video.transcoding.repository.VideoRepository;
 import io.minio.*;
+import io.minio.http.Method;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -33,144 +44,612 @@ public class TranscodingService {
     private final VideoRepository videoRepository;
     private final KafkaTemplate<String, TranscodingResult> kafkaTemplate;
     private final WebSocketService webSocketService;
+    private final TranscodingScheduler transcodingScheduler;
+    private final RenditionUploader renditionUploader;
+    private final RetryTemplate retryTemplate;
+    private final FfmpegService ffmpegService;
+    private final SegmentedTranscodingService segmentedTranscodingService;
+    private final HlsService hlsService;
+    private final RenditionSetService renditionSetService;
+    private final JobCheckpointService jobCheckpointService;
+    private final RetryTopicPublisher retryTopicPublisher;
 
     public void processVideo(TranscodingRequest request) {
+        processVideo(request, 0);
+    }
+
+    // attempt = retries already made; a failed attempt is sent to the next retry topic instead of failing the job
+    public void processVideo(TranscodingRequest request, int attempt) {
+        Path originalVideoPath = null;
+        List<String> processedFiles = new ArrayList<>();
         try {
             // Gửi thông báo bắt đầu transcoding
             webSocketService.sendProgress(request.getUserId(), request.getVideoId(), "TRANSCODING_STARTED", 0);
 
+            // Redeliveries and resumes pick up the checkpoint left by an earlier attempt
+            TranscodingJob job = jobCheckpointService.start(request);
+            if ("COMPLETED".equals(job.getStatus())) {
+                log.info("Video {} was already transcoded, skipping redelivered request", request.getVideoId());
+                return;
+            }
+            if ("DISTRIBUTED".equals(job.getStatus())) {
+                // Splitting again would reset the segments the fleet has already encoded
+                log.info("Video {} was already split into segments, skipping redelivered request", request.getVideoId());
+                return;
+            }
+
             // Create temp directory if it doesn't exist
             Path tempDir = Path.of(videoProcessingConfig.getTempDir());
             Files.createDirectories(tempDir);
 
-            // Save uploaded file temporarily
-            Path originalVideoPath = tempDir.resolve(request.getVideoId() + request.getExtension());
-            Files.copy(Path.of(request.getOriginalFilePath()), originalVideoPath, StandardCopyOption.REPLACE_EXISTING);
+            originalVideoPath = tempDir.resolve(request.getVideoId() + request.getExtension());
+            String contentHash = request.getContentHash();
+            // The MinIO copy of the source, if there is one: a direct upload, or persisted by an earlier attempt
+            String sourceObject = job.getSourceObjectName();
+            boolean uploadedHere = request.getSourceObjectName() == null
+                && request.getOriginalFilePath() != null
+                && Files.exists(Path.of(request.getOriginalFilePath()));
+            if (uploadedHere) {
+                // Save uploaded file temporarily; streamed uploads already land at this path
+                Path uploadedPath = Path.of(request.getOriginalFilePath());
+                if (!uploadedPath.toAbsolutePath().normalize().equals(originalVideoPath.toAbsolutePath().normalize())) {
+                    Files.copy(uploadedPath, originalVideoPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } else if (sourceObject != null) {
+                // Direct uploads, or a job resumed on a node that never had the upload: pull the source from MinIO
+                contentHash = fetchSource(sourceObject, originalVideoPath);
+            } else {
+                throw new Exception("Source of video " + request.getVideoId() + " is neither on this node nor in MinIO");
+            }
+
+            if (contentHash == null) {
+                contentHash = renditionSetService.hashFile(originalVideoPath);
+            }
+
+            // Resolution, frame rate, codecs and duration drive the ladder and the progress estimate
+            Video.SourceInfo sourceInfo = ffmpegService.probe(originalVideoPath);
+
+            // Same source, same ladder: reference the existing renditions instead of encoding again
+            RenditionSet reusable = renditionSetService.acquire(contentHash);
+            if (reusable != null) {
+                log.info("Video {} reuses renditions of video {}", request.getVideoId(), reusable.getOwnerVideoId());
+                Video video = newVideo(request, contentHash, sourceInfo);
+                video.setQualities(reusable.getQualities());
+                video.setHls(reusable.getHls());
+                video.setRenditionSetId(reusable.getId());
+                try {
+                    videoRepository.save(video);
+                } catch (Exception e) {
+                    // The reference was taken for a video that doesn't exist; a retry acquires again
+                    renditionSetService.release(reusable.getId());
+                    throw e;
+                }
+                jobCheckpointService.complete(request.getVideoId());
+
+                Files.delete(originalVideoPath);
+                removeSourceObject(sourceObject);
+                webSocketService.sendProgress(request.getUserId(), request.getVideoId(), "TRANSCODING_COMPLETED", 100);
+                publishSuccess(request.getVideoId(), request.getUserId(), video.getQualities());
+                return;
+            }
+
+            List<VideoProcessingConfig.Quality> ladder = planLadder(sourceInfo);
+            if (segmentedTranscodingService.shouldDistribute(originalVideoPath)) {
+                // Segments are encoded across the consumer fleet; the last one to finish writes the Video document
+                segmentedTranscodingService.split(request, originalVideoPath, contentHash, sourceInfo, ladder);
+                jobCheckpointService.distributed(request.getVideoId());
+                Files.delete(originalVideoPath);
+                removeSourceObject(sourceObject);
+                return;
+            }
+
+            // Copy the source to MinIO alongside the encodes, so a redelivery on another node can resume
+            CompletableFuture<Void> sourcePersisted = CompletableFuture.completedFuture(null);
+            if (sourceObject == null && videoProcessingConfig.getCheckpoint().isPersistSource()) {
+                sourceObject = request.getVideoId() + "/source/original" + request.getExtension();
+                String persistedObject = sourceObject;
+                String persistedHash = contentHash;
+                sourcePersisted = renditionUploader.uploadAsync(originalVideoPath.toFile(), persistedObject)
+                    .thenRun(() -> jobCheckpointService.sourcePersisted(request.getVideoId(), persistedHash, persistedObject));
+            }
 
             // Create video document
-            Video video = new Video();
-            video.setId(request.getVideoId());
-            video.setUserId(request.getUserId());
-            video.setOriginalFileName(request.getOriginalFileName());
-            video.setExtension(request.getExtension());
-            video.setCreatedAt(LocalDateTime.now());
-            video.setUpdatedAt(LocalDateTime.now());
+            Video video = newVideo(request, contentHash, sourceInfo);
 
             // Process video for different qualities
-            List<String> processedFiles = new ArrayList<>();
+            TranscodingProgress progress = new TranscodingProgress(
+                webSocketService, request.getUserId(), request.getVideoId(),
+                ladder.stream().map(VideoProcessingConfig.Quality::getName).collect(Collectors.toList()),
+                (long) (sourceInfo.getDurationSeconds() * 1_000_000)
+            );
+            Map<String, TranscodingJob.RenditionState> done = job.getRenditions();
             List<Video.VideoQuality> qualities = new ArrayList<>();
-            int totalQualities = videoProcessingConfig.getQualities().size();
-            int currentQuality = 0;
-
-            for (VideoProcessingConfig.Quality quality : videoProcessingConfig.getQualities()) {
-                currentQuality++;
-                int progress = (currentQuality * 100) / totalQualities;
-                webSocketService.sendProgress(request.getUserId(), request.getVideoId(), "TRANSCODING", progress);
-
-                String outputFileName = request.getVideoId() + "_" + quality.getName() + request.getExtension();
-                Path outputPath = tempDir.resolve(outputFileName);
-                
-                // Transcode video using FFmpeg with retry
-                transcodeVideoWithRetry(originalVideoPath, outputPath, quality);
-                
-                // Upload to MinIO
-                String objectName = request.getVideoId() + "/" + outputFileName;
-                uploadToMinioWithRetry(outputPath.toFile(), objectName);
-                processedFiles.add(outputPath.toString());
-
-                // Create video quality info
-                Video.VideoQuality videoQuality = new Video.VideoQuality();
-                videoQuality.setName(quality.getName());
-                videoQuality.setHeight(quality.getHeight());
-                videoQuality.setBitrate(quality.getBitrate());
-                videoQuality.setPreset(quality.getPreset());
-                videoQuality.setCrf(quality.getCrf());
-                videoQuality.setObjectName(objectName);
-                qualities.add(videoQuality);
+            try {
+                if (videoProcessingConfig.getPackaging() == VideoProcessingConfig.Packaging.HLS) {
+                    Map<String, Video.HlsRendition> finished = new HashMap<>();
+                    done.forEach((name, state) -> {
+                        if (state.getHls() != null) {
+                            finished.put(name, state.getHls());
+                        }
+                    });
+                    // Renditions become CMAF segments with media playlists, tied together by a master playlist
+                    Video.HlsPackage hls = hlsService.packageRenditions(request, originalVideoPath, ladder, finished, progress,
+                        rendition -> jobCheckpointService.renditionDone(
+                            request.getVideoId(), rendition.getName(), rendition.getPlaylistObject(), false, null, rendition));
+                    video.setHls(hls);
+                    for (int i = 0; i < ladder.size(); i++) {
+                        // A quality's object is its media playlist; renditions come back in ladder order
+                        Video.HlsRendition rendition = hls.getRenditions().get(i);
+                        Video.VideoQuality videoQuality = toVideoQuality(ladder.get(i), rendition.getPlaylistObject());
+                        videoQuality.setManifest(rendition.getManifest());
+                        qualities.add(videoQuality);
+                    }
+                } else {
+                    List<VideoProcessingConfig.Quality> pending = new ArrayList<>();
+                    for (VideoProcessingConfig.Quality quality : ladder) {
+                        if (done.containsKey(quality.getName())) {
+                            // Counted as finished, so the overall percentage doesn't stall short of 100
+                            progress.completed(quality.getName());
+                        } else {
+                            pending.add(quality);
+                        }
+                    }
+                    Map<String, Video.VideoQuality> encoded = new HashMap<>();
+                    for (Video.VideoQuality quality : encodeRenditions(request, tempDir, originalVideoPath, sourceInfo, pending, processedFiles, progress)) {
+                        encoded.put(quality.getName(), quality);
+                    }
+                    for (VideoProcessingConfig.Quality quality : ladder) {
+                        TranscodingJob.RenditionState state = done.get(quality.getName());
+                        if (state != null) {
+                            // Encoded and uploaded by an earlier attempt
+                            Video.VideoQuality videoQuality = toVideoQuality(quality, state.getObjectName());
+                            videoQuality.setRemuxed(state.isRemuxed());
+                            videoQuality.setManifest(state.getManifest());
+                            qualities.add(videoQuality);
+                        } else {
+                            qualities.add(encoded.get(quality.getName()));
+                        }
+                    }
+                }
+            } finally {
+                // The source file must outlive its upload
+                sourcePersisted.handle((v, e) -> null).get();
             }
 
             video.setQualities(qualities);
+            // Later uploads of the same source reuse these renditions
+            video.setRenditionSetId(renditionSetService.register(contentHash, video));
             videoRepository.save(video);
+            jobCheckpointService.complete(request.getVideoId());
 
             // Clean up temporary files
             Files.delete(originalVideoPath);
             for (String processedFile : processedFiles) {
                 Files.delete(Path.of(processedFile));
             }
+            removeSourceObject(sourceObject);
 
             // Gửi thông báo hoàn thành
             webSocketService.sendProgress(request.getUserId(), request.getVideoId(), "TRANSCODING_COMPLETED", 100);
 
             // Send success result
-            TranscodingResult result = new TranscodingResult();
-            result.setVideoId(request.getVideoId());
-            result.setUserId(request.getUserId());
-            result.setSuccess(true);
-            result.setCompletedAt(LocalDateTime.now());
-            result.setQualities(convertToResultQualities(qualities));
-            kafkaTemplate.send("video-transcoding-result", result);
+            publishSuccess(request.getVideoId(), request.getUserId(), qualities);
 
         } catch (Exception e) {
-            log.error("Error processing video: {}", request.getVideoId(), e);
-            
-            // Gửi thông báo lỗi
-            webSocketService.sendProgress(request.getUserId(), request.getVideoId(), "ERROR", 0);
-            
-            // Send error result
-            TranscodingResult result = new TranscodingResult();
-            result.setVideoId(request.getVideoId());
-            result.setUserId(request.getUserId());
-            result.setSuccess(false);
-            result.setErrorMessage(e.getMessage());
-            result.setCompletedAt(LocalDateTime.now());
-            kafkaTemplate.send("video-transcoding-result", result);
-        }
-    }
-
-    @Retryable(
-        value = {Exception.class},
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 2000, multiplier = 2, maxDelay = 10000)
-    )
-    private void transcodeVideoWithRetry(Path inputPath, Path outputPath, VideoProcessingConfig.Quality quality) throws Exception {
-        String ffmpegCommand = String.format(
-            "ffmpeg -i %s -vf scale=-2:%d -c:v libx264 -preset %s -crf %d -b:v %s " +
-            "-c:a aac -b:a 192k -ar 48000 -ac 2 -movflags +faststart %s",
-            inputPath,
-            quality.getHeight(),
-            quality.getPreset(),
-            quality.getCrf(),
-            quality.getBitrate(),
-            outputPath
-        );
-        
-        log.info("Executing FFmpeg command: {}", ffmpegCommand);
-        Process process = Runtime.getRuntime().exec(ffmpegCommand);
-        int exitCode = process.waitFor();
-        
-        if (exitCode != 0) {
-            throw new Exception("FFmpeg process failed with exit code: " + exitCode);
-        }
-    }
-
-    @Retryable(
-        value = {Exception.class},
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 2000, multiplier = 2, maxDelay = 10000)
-    )
-    private void uploadToMinioWithRetry(File file, String objectName) throws Exception {
-        try (InputStream inputStream = new FileInputStream(file)) {
-            minioClient.putObject(
-                PutObjectArgs.builder()
+            log.error("Error processing video: {} (attempt {})", request.getVideoId(), attempt + 1, e);
+            // Finished renditions are checkpointed, so the retry only redoes the ones that failed.
+            // An unreadable source fails outright: retrying the same bytes can't help.
+            boolean retrying = !(e instanceof IllegalArgumentException) && retryTopicPublisher.hasRetry(attempt);
+            // The retry may run on another node; nothing of this attempt may stay behind in the temp dir
+            cleanUpAttempt(request, originalVideoPath, processedFiles, retrying);
+            if (retrying && retryTopicPublisher.retry(request.getTenantId(), request, attempt, e)) {
+                jobCheckpointService.retrying(request.getVideoId(), e);
+                webSocketService.sendProgress(request.getUserId(), request.getVideoId(), "TRANSCODING_RETRYING", 0);
+            } else {
+                jobCheckpointService.fail(request.getVideoId(), e);
+                publishFailure(request.getVideoId(), request.getUserId(), e);
+            }
+        }
+    }
+
+    // Partial renditions always go. The local source goes too unless a retry still needs it and it exists nowhere else:
+    // a streamed upload that landed at this path and was never persisted to MinIO.
+    private void cleanUpAttempt(TranscodingRequest request, Path originalVideoPath, List<String> processedFiles, boolean retrying) {
+        for (String processedFile : processedFiles) {
+            deleteQuietly(Path.of(processedFile));
+        }
+        Path uploadedPath = request.getOriginalFilePath() != null ? Path.of(request.getOriginalFilePath()) : null;
+        if (!retrying && uploadedPath != null) {
+            deleteQuietly(uploadedPath);
+        }
+        if (originalVideoPath == null) {
+            return;
+        }
+        boolean isUpload = uploadedPath != null
+            && uploadedPath.toAbsolutePath().normalize().equals(originalVideoPath.toAbsolutePath().normalize());
+        if (!retrying || !isUpload || sourceInMinio(request)) {
+            deleteQuietly(originalVideoPath);
+        }
+    }
+
+    private boolean sourceInMinio(TranscodingRequest request) {
+        if (request.getSourceObjectName() != null) {
+            return true;
+        }
+        try {
+            return jobCheckpointService.getJob(request.getVideoId()).getSourceObjectName() != null;
+        } catch (Exception e) {
+            // No checkpoint to tell: keep the file rather than lose the only copy
+            return false;
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (Exception e) {
+            log.warn("Could not delete temp file: {}", path, e);
+        }
+    }
+
+    private List<Video.VideoQuality> encodeRenditions(TranscodingRequest request, Path tempDir, Path originalVideoPath,
+                                                      Video.SourceInfo sourceInfo,
+                                                      List<VideoProcessingConfig.Quality> ladder,
+                                                      List<String> processedFiles,
+                                                      TranscodingProgress progress) throws Exception {
+        List<Video.VideoQuality> qualities = new ArrayList<>();
+        List<Path> outputPaths = new ArrayList<>();
+        List<Boolean> remuxes = new ArrayList<>();
+        for (VideoProcessingConfig.Quality quality : ladder) {
+            outputPaths.add(tempDir.resolve(request.getVideoId() + "_" + quality.getName() + request.getExtension()));
+            remuxes.add(canRemux(sourceInfo, quality));
+        }
+
+        boolean streaming = videoProcessingConfig.getOutputMode() == VideoProcessingConfig.OutputMode.STREAM;
+        boolean singlePassConfigured = videoProcessingConfig.getEncodeMode() == VideoProcessingConfig.EncodeMode.SINGLE_PASS;
+        if (singlePassConfigured && streaming) {
+            // stdout carries a single output, so streamed renditions need one process each
+            log.warn("SINGLE_PASS encoding is not available with STREAM output, encoding video {} per rendition", request.getVideoId());
+        }
+        boolean singlePass = singlePassConfigured && !streaming;
+        if (singlePass) {
+            // Decode once, encode every rendition in the same FFmpeg process; remuxed renditions stay out of the graph
+            List<VideoProcessingConfig.Quality> encodeLadder = new ArrayList<>();
+            List<Path> encodePaths = new ArrayList<>();
+            for (int i = 0; i < ladder.size(); i++) {
+                if (!remuxes.get(i)) {
+                    encodeLadder.add(ladder.get(i));
+                    encodePaths.add(outputPaths.get(i));
+                }
+            }
+            if (!encodeLadder.isEmpty()) {
+                int slots = encodeLadder.stream().mapToInt(transcodingScheduler::threadsFor).sum();
+                transcodingScheduler.execute(slots, () -> {
+                    transcodeAllQualities(originalVideoPath, encodePaths, encodeLadder, progress.listenerForAll());
+                    return null;
+                });
+            }
+        }
+
+        // Renditions run concurrently under the node CPU budget
+        boolean pipelined = videoProcessingConfig.getUpload().isPipelined();
+        List<CompletableFuture<Video.VideoQuality>> renditions = new ArrayList<>();
+
+        for (int i = 0; i < ladder.size(); i++) {
+            VideoProcessingConfig.Quality quality = ladder.get(i);
+            Path outputPath = outputPaths.get(i);
+            String objectName = request.getVideoId() + "/" + outputPath.getFileName();
+            boolean remux = remuxes.get(i);
+            boolean encodedInSinglePass = singlePass && !remux;
+            // A stream copy is I/O bound and needs a single slot
+            int slots = remux ? 1 : transcodingScheduler.threadsFor(quality);
+
+            CompletableFuture<Video.ManifestObject> uploaded;
+            if (streaming) {
+                // Nothing touches local disk: FFmpeg's stdout feeds the multipart upload directly
+                uploaded = transcodingScheduler.submit(slots, () ->
+                    transcodeToMinioWithRetry(originalVideoPath, quality, remux, objectName, progress.listener(quality.getName())));
+            } else if (pipelined) {
+                processedFiles.add(outputPath.toString());
+                // Encode slots are released as soon as FFmpeg exits; the upload runs on the I/O pool
+                CompletableFuture<Void> encoded = encodedInSinglePass
+                    ? CompletableFuture.completedFuture(null)
+                    : transcodingScheduler.submit(slots, () -> {
+                        transcodeVideo(originalVideoPath, outputPath, quality, remux, progress.listener(quality.getName()));
+                        return null;
+                    });
+                uploaded = encoded.thenCompose(v -> renditionUploader.uploadAsync(outputPath.toFile(), objectName));
+            } else if (encodedInSinglePass) {
+                processedFiles.add(outputPath.toString());
+                uploaded = CompletableFuture.completedFuture(renditionUploader.upload(outputPath.toFile(), objectName));
+            } else {
+                processedFiles.add(outputPath.toString());
+                uploaded = transcodingScheduler.submit(slots, () -> {
+                    // Transcode video using FFmpeg, then upload to MinIO
+                    transcodeVideo(originalVideoPath, outputPath, quality, remux, progress.listener(quality.getName()));
+                    return renditionUploader.upload(outputPath.toFile(), objectName);
+                });
+            }
+
+            renditions.add(uploaded.thenApply(object -> {
+                Video.RenditionManifest manifest;
+                try {
+                    // The local file is kept until the job ends, so it can be probed after the upload
+                    manifest = streaming
+                        ? streamedManifest(object)
+                        : ffmpegService.describeRendition(outputPath, List.of(object));
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+                progress.completed(quality.getName());
+                jobCheckpointService.renditionDone(request.getVideoId(), quality.getName(), objectName, remux, manifest, null);
+                Video.VideoQuality videoQuality = toVideoQuality(quality, objectName);
+                videoQuality.setRemuxed(remux);
+                videoQuality.setManifest(manifest);
+                return videoQuality;
+            }));
+        }
+
+        // Let every encode and upload settle before saving or cleaning up, even if one of them failed
+        CompletableFuture.allOf(renditions.toArray(new CompletableFuture[0]))
+            .handle((v, e) -> null)
+            .get();
+        for (CompletableFuture<Video.VideoQuality> rendition : renditions) {
+            qualities.add(transcodingScheduler.await(rendition));
+        }
+
+        return qualities;
+    }
+
+    public void processSegment(SegmentWorkItem item) {
+        processSegment(item, 0);
+    }
+
+    public void processSegment(SegmentWorkItem item, int attempt) {
+        try {
+            SegmentedJob job = segmentedTranscodingService.processSegment(item);
+            if (job == null) {
+                // Other segments or renditions of this video are still outstanding
+                return;
+            }
+
+            // Assembled renditions use the same object layout as a single-node job
+            List<Video.VideoQuality> qualities = new ArrayList<>();
+            for (VideoProcessingConfig.Quality quality : videoProcessingConfig.getQualities()) {
+                if (job.getQualities().contains(quality.getName())) {
+                    String objectName = item.getVideoId() + "/" + item.getVideoId() + "_" + quality.getName() + item.getExtension();
+                    Video.VideoQuality videoQuality = toVideoQuality(quality, objectName);
+                    videoQuality.setManifest(job.getManifests().get(quality.getName()));
+                    qualities.add(videoQuality);
+                }
+            }
+
+            Video video = new Video();
+            video.setId(item.getVideoId());
+            video.setUserId(item.getUserId());
+            video.setOriginalFileName(item.getOriginalFileName());
+            video.setExtension(item.getExtension());
+            video.setContentHash(job.getContentHash());
+            video.setCreatedAt(LocalDateTime.now());
+            video.setUpdatedAt(LocalDateTime.now());
+            video.setSource(job.getSource());
+            video.setQualities(qualities);
+            // Later uploads of the same source reuse these renditions, as with a single-node job
+            if (job.getContentHash() != null) {
+                video.setRenditionSetId(renditionSetService.register(job.getContentHash(), video));
+            }
+            videoRepository.save(video);
+            jobCheckpointService.complete(item.getVideoId());
+
+            webSocketService.sendProgress(item.getUserId(), item.getVideoId(), "TRANSCODING_COMPLETED", 100);
+            publishSuccess(item.getVideoId(), item.getUserId(), qualities);
+        } catch (Exception e) {
+            log.error("Error processing segment {} ({}) of video: {} (attempt {})",
+                item.getSegmentIndex(), item.getQuality(), item.getVideoId(), attempt + 1, e);
+            // Only this segment is retried; the rest of the job keeps going on other consumers
+            if (!retryTopicPublisher.retry(item.getTenantId(), item, attempt, e)
+                    && segmentedTranscodingService.markFailed(item.getVideoId(), e)) {
+                publishFailure(item.getVideoId(), item.getUserId(), e);
+            }
+        }
+    }
+
+    // Renditions at or below the source (and the configured cap); a source below every rung gets the smallest one
+    private List<VideoProcessingConfig.Quality> planLadder(Video.SourceInfo source) {
+        VideoProcessingConfig.Ladder settings = videoProcessingConfig.getLadder();
+        List<VideoProcessingConfig.Quality> all = videoProcessingConfig.getQualities();
+        // Letterboxed and portrait sources are measured against a 16:9 frame, so a 1920x800 film still gets 1080p
+        int sourceHeight = Math.max(source.getHeight(), source.getWidth() * 9 / 16);
+
+        List<VideoProcessingConfig.Quality> ladder = all.stream()
+            .filter(q -> !settings.isSkipUpscale() || q.getHeight() <= sourceHeight)
+            .filter(q -> settings.getMaxHeight() <= 0 || q.getHeight() <= settings.getMaxHeight())
+            .collect(Collectors.toList());
+        if (ladder.isEmpty()) {
+            all.stream()
+                .min(Comparator.comparingInt(VideoProcessingConfig.Quality::getHeight))
+                .ifPresent(ladder::add);
+        }
+        if (ladder.size() < all.size()) {
+            log.info("Source is {}x{}, encoding {} of {} renditions", source.getWidth(), source.getHeight(), ladder.size(), all.size());
+        }
+        return ladder;
+    }
+
+    private Video newVideo(TranscodingRequest request, String contentHash, Video.SourceInfo sourceInfo) {
+        Video video = new Video();
+        video.setId(request.getVideoId());
+        video.setUserId(request.getUserId());
+        video.setOriginalFileName(request.getOriginalFileName());
+        video.setExtension(request.getExtension());
+        video.setContentHash(contentHash);
+        video.setSource(sourceInfo);
+        video.setCreatedAt(LocalDateTime.now());
+        video.setUpdatedAt(LocalDateTime.now());
+        return video;
+    }
+
+    // Returns the source's SHA-256, computed while it downloads
+    private String fetchSource(String objectName, Path target) throws Exception {
+        return retryTemplate.<String, Exception>execute(context -> {
+            MessageDigest digest = RenditionSetService.newDigest();
+            try (InputStream inputStream = new DigestInputStream(minioClient.getObject(
+                    GetObjectArgs.builder()
+                        .bucket(videoProcessingConfig.getTempDir())
+                        .object(objectName)
+                        .build()), digest)) {
+                Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return RenditionSetService.hex(digest.digest());
+        });
+    }
+
+    // Kept until the job succeeds so a redelivered request can still fetch it
+    private void removeSourceObject(String objectName) throws Exception {
+        if (objectName != null) {
+            minioClient.removeObject(
+                RemoveObjectArgs.builder()
                     .bucket(videoProcessingConfig.getTempDir())
                     .object(objectName)
-                    .stream(inputStream, file.length(), -1)
-                    .contentType("video/mp4")
                     .build()
             );
         }
     }
 
+    private void publishSuccess(String videoId, String userId, List<Video.VideoQuality> qualities) {
+        TranscodingResult result = new TranscodingResult();
+        result.setVideoId(videoId);
+        result.setUserId(userId);
+        result.setSuccess(true);
+        result.setCompletedAt(LocalDateTime.now());
+        result.setQualities(convertToResultQualities(qualities));
+        kafkaTemplate.send("video-transcoding-result", result);
+    }
+
+    private void publishFailure(String videoId, String userId, Exception e) {
+        // Gửi thông báo lỗi
+        webSocketService.sendProgress(userId, videoId, "ERROR", 0);
+
+        // Send error result
+        TranscodingResult result = new TranscodingResult();
+        result.setVideoId(videoId);
+        result.setUserId(userId);
+        result.setSuccess(false);
+        result.setErrorMessage(e.getMessage());
+        result.setCompletedAt(LocalDateTime.now());
+        kafkaTemplate.send("video-transcoding-result", result);
+    }
+
+    private void transcodeVideo(Path inputPath, Path outputPath, VideoProcessingConfig.Quality quality, boolean remux,
+                                         FfmpegService.ProgressListener listener) throws Exception {
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-y", "-i", inputPath.toString()));
+        command.addAll(renditionArgs(quality, remux));
+        command.addAll(List.of("-movflags", "+faststart", outputPath.toString()));
+        ffmpegService.run(command, listener);
+    }
+
+    private Video.ManifestObject transcodeToMinioWithRetry(Path inputPath, VideoProcessingConfig.Quality quality, boolean remux,
+                                                           String objectName, FfmpegService.ProgressListener listener) throws Exception {
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-nostdin", "-i", inputPath.toString()));
+        command.addAll(renditionArgs(quality, remux));
+        // faststart needs a seekable output; fragmented MP4 plays without a rewrite
+        command.addAll(List.of("-movflags", "frag_keyframe+empty_moov+default_base_moof", "-f", "mp4", "pipe:1"));
+
+        // A half-sent stream can't be resumed, so every attempt re-runs FFmpeg and restarts the upload
+        return retryTemplate.<Video.ManifestObject, Exception>execute(context -> {
+            Process process = ffmpegService.start(command, listener, ProcessBuilder.Redirect.PIPE);
+            Video.ManifestObject object;
+            try (InputStream output = process.getInputStream()) {
+                object = renditionUploader.uploadStream(output, objectName);
+            } catch (Exception e) {
+                process.destroyForcibly();
+                throw e;
+            }
+
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new Exception("FFmpeg process failed with exit code: " + exitCode);
+            }
+            return object;
+        });
+    }
+
+    private void transcodeAllQualities(Path inputPath, List<Path> outputPaths, List<VideoProcessingConfig.Quality> ladder,
+                                                FfmpegService.ProgressListener listener) throws Exception {
+        // [0:v]split=N[s0][s1]...;[s0]scale=-2:H0[v0];[s1]scale=-2:H1[v1];...
+        StringBuilder filterGraph = new StringBuilder("[0:v]split=").append(ladder.size());
+        for (int i = 0; i < ladder.size(); i++) {
+            filterGraph.append("[s").append(i).append("]");
+        }
+        for (int i = 0; i < ladder.size(); i++) {
+            filterGraph.append(";[s").append(i).append("]scale=-2:")
+                .append(ladder.get(i).getHeight())
+                .append("[v").append(i).append("]");
+        }
+
+        List<String> command = new ArrayList<>(List.of(
+            "ffmpeg", "-y", "-i", inputPath.toString(),
+            "-filter_complex", filterGraph.toString()
+        ));
+        for (int i = 0; i < ladder.size(); i++) {
+            command.addAll(List.of("-map", "[v" + i + "]", "-map", "0:a?"));
+            command.addAll(ffmpegService.encoderArgs(ladder.get(i)));
+            command.addAll(List.of("-movflags", "+faststart", outputPaths.get(i).toString()));
+        }
+        ffmpegService.run(command, listener);
+    }
+
+    private List<String> renditionArgs(VideoProcessingConfig.Quality quality, boolean remux) {
+        if (remux) {
+            // Source streams go into the new container untouched; the muxer still applies movflags
+            return List.of("-map", "0:v:0", "-map", "0:a?", "-c", "copy");
+        }
+        List<String> args = new ArrayList<>(List.of("-vf", "scale=-2:" + quality.getHeight()));
+        args.addAll(ffmpegService.encoderArgs(quality));
+        return args;
+    }
+
+    // H.264/AAC at exactly the rendition height and within the bitrate tolerance is already a valid rendition
+    private boolean canRemux(Video.SourceInfo source, VideoProcessingConfig.Quality quality) {
+        VideoProcessingConfig.Ladder settings = videoProcessingConfig.getLadder();
+        if (!settings.isRemux() || source == null) {
+            return false;
+        }
+        boolean compatibleCodecs = "h264".equals(source.getVideoCodec())
+            && (source.getAudioCodec() == null || "aac".equals(source.getAudioCodec()))
+            && "yuv420p".equals(source.getPixelFormat());
+        if (!compatibleCodecs || source.getHeight() != quality.getHeight()) {
+            return false;
+        }
+        // Container overhead is small, so the overall bitrate is compared with video plus the audio target
+        long target = quality.bitrateBps() + videoProcessingConfig.getAudio().getBitrate();
+        return source.getBitRate() > 0 && source.getBitRate() <= target * (1 + settings.getRemuxBitrateTolerance());
+    }
+
+    // A streamed rendition never exists as a local file, so it is probed where it landed, through a short-lived URL
+    private Video.RenditionManifest streamedManifest(Video.ManifestObject object) throws Exception {
+        String url = minioClient.getPresignedObjectUrl(
+            GetPresignedObjectUrlArgs.builder()
+                .bucket(videoProcessingConfig.getTempDir())
+                .object(object.getObjectName())
+                .method(Method.GET)
+                .expiry(15, TimeUnit.MINUTES)
+                .build()
+        );
+        return ffmpegService.describeRemoteRendition(url, object.getObjectName(), List.of(object));
+    }
+
+    private Video.VideoQuality toVideoQuality(VideoProcessingConfig.Quality quality, String objectName) {
+        Video.VideoQuality videoQuality = new Video.VideoQuality();
+        videoQuality.setName(quality.getName());
+        videoQuality.setHeight(quality.getHeight());
+        videoQuality.setBitrate(quality.getBitrate());
+        videoQuality.setPreset(quality.getPreset());
+        videoQuality.setCrf(quality.getCrf());
+        videoQuality.setObjectName(objectName);
+        return videoQuality;
+    }
+
     private List<TranscodingResult.VideoQuality> convertToResultQualities(List<Video.VideoQuality> qualities) {
         List<TranscodingResult.VideoQuality> result = new ArrayList<>();
         for (Video.VideoQuality quality : qualities) {
@@ -179,6 +658,7 @@ public class TranscodingService {
             resultQuality.setHeight(quality.getHeight());
             resultQuality.setBitrate(quality.getBitrate());
             resultQuality.setObjectName(quality.getObjectName());
+            resultQuality.setManifest(quality.getManifest());
             result.add(resultQuality);
         }
         return result;
@@ -16,9 +16,12 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -27,9 +30,13 @@ import java.util.stream.Collectors;
 @Service
 @RequiredArgsConstructor
 public class VideoProcessingService {
+    static final Duration URL_EXPIRY = Duration.ofDays(7);
+
     private final MinioClient minioClient;
     private final VideoProcessingConfig videoProcessingConfig;
     private final VideoRepository videoRepository;
+    private final VideoUrlCache videoUrlCache;
+    private final RenditionSetService renditionSetService;
 
     public String processVideo(MultipartFile file, String userId) throws Exception {
         String videoId = UUID.randomUUID().toString();
@@ -64,12 +71,15 @@ public class VideoProcessingService {
             // Transcode video using FFmpeg with improved quality settings
             String ffmpegCommand = String.format(
                 "ffmpeg -i %s -vf scale=-2:%d -c:v libx264 -preset %s -crf %d -b:v %s " +
-                "-c:a aac -b:a 192k -ar 48000 -ac 2 -movflags +faststart %s",
+                "-c:a aac -b:a %d -ar %d -ac %d -movflags +faststart %s",
                 originalVideoPath,
                 quality.getHeight(),
                 quality.getPreset(),
                 quality.getCrf(),
                 quality.getBitrate(),
+                videoProcessingConfig.getAudio().getBitrate(),
+                videoProcessingConfig.getAudio().getSampleRate(),
+                videoProcessingConfig.getAudio().getChannels(),
                 outputPath
             );
             
@@ -119,22 +129,47 @@ public class VideoProcessingService {
     }
 
     public String getVideoUrl(String videoId, String quality) throws Exception {
+        // Playback storms are served from memory; Mongo and signing are hit once per entry lifetime
+        return videoUrlCache.signedUrl(videoId, quality, () -> {
+            String objectName = videoUrlCache.objectNames(videoId, () -> loadObjectNames(videoId)).get(quality);
+            if (objectName == null) {
+                throw new RuntimeException("Quality not found");
+            }
+
+            return minioClient.getPresignedObjectUrl(
+                GetPresignedObjectUrlArgs.builder()
+                    .bucket(videoProcessingConfig.getTempDir())
+                    .object(objectName)
+                    .method(Method.GET)
+                    .expiry((int) URL_EXPIRY.toSeconds(), TimeUnit.SECONDS)
+                    .build()
+            );
+        });
+    }
+
+    private Map<String, String> loadObjectNames(String videoId) {
         Video video = videoRepository.findById(videoId)
             .orElseThrow(() -> new RuntimeException("Video not found"));
 
-        String objectName = video.getQualities().stream()
-            .filter(q -> q.getName().equals(quality))
-            .map(Video.VideoQuality::getObjectName)
-            .findFirst()
-            .orElseThrow(() -> new RuntimeException("Quality not found"));
-
-        return minioClient.getPresignedObjectUrl(
-            GetPresignedObjectUrlArgs.builder()
-                .bucket(videoProcessingConfig.getTempDir())
-                .object(objectName)
-                .method(Method.GET)
-                .expiry(7, TimeUnit.DAYS)
-                .build()
-        );
+        Map<String, String> objectNames = new LinkedHashMap<>();
+        for (Video.VideoQuality quality : video.getQualities()) {
+            objectNames.put(quality.getName(), quality.getObjectName());
+        }
+        return objectNames;
+    }
+
+    public void deleteVideo(String videoId, String userId) throws Exception {
+        Video video = videoRepository.findById(videoId)
+            .filter(v -> v.getUserId().equals(userId))
+            .orElseThrow(() -> new IllegalArgumentException("Video not found"));
+
+        videoRepository.delete(video);
+        videoUrlCache.invalidate(videoId);
+        if (video.getRenditionSetId() != null) {
+            // Shared renditions go away with the last video referencing them
+            renditionSetService.release(video.getRenditionSetId());
+        } else {
+            renditionSetService.removeObjects(videoId + "/");
+        }
     }
-} 
\ No newline at end of file
+}
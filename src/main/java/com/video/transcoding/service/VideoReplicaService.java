@@ -0,0 +1,322 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.ReplicationConfig;
+import com.video.transcoding.config.VideoProcessingConfig;
+import com.video.transcoding.dto.ReplicationManifest;
+import com.video.transcoding.model.Organization;
+import com.video.transcoding.model.Video;
+import com.video.transcoding.model.VideoReplica;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+// Replicates each video once per target organization: the first share transfers the renditions,
+// later shares find them in the registry and only add their VideoShare record on the target
+@Slf4j
+@Service
+public class VideoReplicaService {
+    // A live transfer rewrites its claim at least this often, far inside claim-stale-minutes
+    private static final long CLAIM_REFRESH_MS = 30_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final MinioClient minioClient;
+    private final VideoProcessingConfig videoProcessingConfig;
+    private final ReplicationConfig replicationConfig;
+    private final ReplicationService replicationService;
+    private final ExecutorService videoExecutor;
+
+    public VideoReplicaService(MongoTemplate mongoTemplate, MinioClient minioClient,
+                               VideoProcessingConfig videoProcessingConfig, ReplicationConfig replicationConfig,
+                               ReplicationService replicationService) {
+        this.mongoTemplate = mongoTemplate;
+        this.minioClient = minioClient;
+        this.videoProcessingConfig = videoProcessingConfig;
+        this.replicationConfig = replicationConfig;
+        this.replicationService = replicationService;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // Waits on object transfers running in ReplicationService's pools, so it needs threads of its own
+        this.videoExecutor = Executors.newFixedThreadPool(replicationConfig.getConcurrentVideos(), runnable -> {
+            Thread thread = new Thread(runnable, "replica-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public interface ProgressListener {
+        // Bytes still to cross the link once both diffs are done; 0 when nothing needs sending
+        void onPlanned(long bytes);
+
+        void onSent(long bytes);
+    }
+
+    // Another node holds a live claim on the (video, organization) pair; nothing was transferred
+    public static class AlreadyReplicatingException extends IllegalStateException {
+        public AlreadyReplicatingException(String message) {
+            super(message);
+        }
+    }
+
+    public CompletableFuture<Void> replicateAsync(Video video, Organization target, ProgressListener listener) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                replicate(video, target, listener);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, videoExecutor);
+    }
+
+    public void replicate(Video video, Organization target, ProgressListener listener) throws Exception {
+        VideoReplica replica = claim(video.getId(), target);
+        if (replica == null) {
+            throw new AlreadyReplicatingException("Video " + video.getId() + " is already being replicated to " + target);
+        }
+
+        try {
+            // Registry diff first: objects recorded with the same size and checksum never leave this node again
+            Set<String> recorded = new HashSet<>();
+            for (VideoReplica.ReplicatedObject object : replica.getObjects()) {
+                recorded.add(diffKey(object.getObjectName(), object.getSize(), object.getChecksum()));
+            }
+            ReplicationManifest unrecorded = new ReplicationManifest();
+            ReplicationManifest manifest = manifestFor(video);
+            if (manifest == null) {
+                manifest = listManifest(video);
+            }
+            for (ReplicationManifest.Entry entry : manifest.getObjects()) {
+                if (!recorded.contains(diffKey(entry.getObjectName(), entry.getSize(), entry.getChecksum()))) {
+                    unrecorded.getObjects().add(entry);
+                }
+            }
+            if (unrecorded.getObjects().isEmpty()) {
+                log.info("Video {} is already replicated to {}, no bytes sent", video.getId(), target);
+                setStatus(replica.getId(), "REPLICATED", null);
+                listener.onPlanned(0);
+                return;
+            }
+
+            // Then the target's own diff, for objects it holds without a registry entry here
+            Set<String> missing = new HashSet<>();
+            for (ReplicationManifest.Entry entry : replicationService.missingOn(target, unrecorded).getObjects()) {
+                missing.add(entry.getObjectName());
+            }
+
+            long planned = 0;
+            for (ReplicationManifest.Entry entry : unrecorded.getObjects()) {
+                if (missing.contains(entry.getObjectName())) {
+                    planned += entry.getSize();
+                }
+            }
+            listener.onPlanned(planned);
+
+            // A throttled transfer can outlast claim-stale-minutes, so progress keeps the claim fresh
+            AtomicLong lastRefresh = new AtomicLong(System.currentTimeMillis());
+            LongConsumer sent = bytes -> {
+                listener.onSent(bytes);
+                long now = System.currentTimeMillis();
+                long last = lastRefresh.get();
+                if (now - last >= CLAIM_REFRESH_MS && lastRefresh.compareAndSet(last, now)) {
+                    refreshClaim(replica.getId());
+                }
+            };
+            List<CompletableFuture<Void>> transfers = new ArrayList<>();
+            for (ReplicationManifest.Entry entry : unrecorded.getObjects()) {
+                if (missing.contains(entry.getObjectName())) {
+                    transfers.add(replicationService.replicateAsync(entry, target, sent)
+                        .thenRun(() -> record(replica.getId(), entry)));
+                } else {
+                    record(replica.getId(), entry);
+                }
+            }
+            log.info("Replicating {} of {} objects of video {} to {}",
+                transfers.size(), unrecorded.getObjects().size(), video.getId(), target);
+
+            // Let every transfer settle so finished objects are recorded, then surface the first failure
+            CompletableFuture.allOf(transfers.toArray(new CompletableFuture[0]))
+                .handle((v, e) -> null)
+                .get();
+            for (CompletableFuture<Void> transfer : transfers) {
+                try {
+                    transfer.join();
+                } catch (CompletionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+            setStatus(replica.getId(), "REPLICATED", null);
+        } catch (Exception e) {
+            setStatus(replica.getId(), "FAILED", e.getMessage());
+            throw e;
+        }
+    }
+
+    // Read from the rendition manifests recorded at encode time; null if any rendition predates them
+    public ReplicationManifest manifestFor(Video video) {
+        ReplicationManifest manifest = new ReplicationManifest();
+        if (video.getHls() != null) {
+            if (video.getHls().getMasterPlaylist() == null) {
+                return null;
+            }
+            manifest.getObjects().add(toEntry(video.getHls().getMasterPlaylist()));
+            for (Video.HlsRendition rendition : video.getHls().getRenditions()) {
+                if (rendition.getManifest() == null) {
+                    return null;
+                }
+                rendition.getManifest().getObjects().forEach(object -> manifest.getObjects().add(toEntry(object)));
+            }
+        } else {
+            for (Video.VideoQuality quality : video.getQualities()) {
+                if (quality.getManifest() == null) {
+                    return null;
+                }
+                quality.getManifest().getObjects().forEach(object -> manifest.getObjects().add(toEntry(object)));
+            }
+        }
+        return manifest;
+    }
+
+    private ReplicationManifest.Entry toEntry(Video.ManifestObject object) {
+        ReplicationManifest.Entry entry = new ReplicationManifest.Entry();
+        entry.setObjectName(object.getObjectName());
+        entry.setSize(object.getSize());
+        entry.setContentType(object.getContentType());
+        entry.setChecksum(object.getChecksum());
+        return entry;
+    }
+
+    // A re-encode can keep a rendition's name and size, so the checksum is part of the key when it is known
+    private static String diffKey(String objectName, long size, String checksum) {
+        return objectName + ":" + size + ":" + (checksum != null ? checksum.toLowerCase() : "");
+    }
+
+    // Progressive renditions are single objects; an HLS rendition is everything under its playlist's directory
+    private ReplicationManifest listManifest(Video video) throws Exception {
+        ReplicationManifest manifest = new ReplicationManifest();
+        if (video.getHls() != null) {
+            manifest.getObjects().add(statEntry(video.getHls().getMasterPlaylistObject()));
+            for (Video.HlsRendition rendition : video.getHls().getRenditions()) {
+                String prefix = rendition.getPlaylistObject().substring(0, rendition.getPlaylistObject().lastIndexOf('/') + 1);
+                Iterable<Result<Item>> objects = minioClient.listObjects(
+                    ListObjectsArgs.builder()
+                        .bucket(videoProcessingConfig.getTempDir())
+                        .prefix(prefix)
+                        .recursive(true)
+                        .build()
+                );
+                for (Result<Item> object : objects) {
+                    ReplicationManifest.Entry entry = new ReplicationManifest.Entry();
+                    entry.setObjectName(object.get().objectName());
+                    entry.setSize(object.get().size());
+                    manifest.getObjects().add(entry);
+                }
+            }
+        } else {
+            for (Video.VideoQuality quality : video.getQualities()) {
+                manifest.getObjects().add(statEntry(quality.getObjectName()));
+            }
+        }
+        return manifest;
+    }
+
+    // Only one node transfers a (video, organization) pair at a time; a stale claim is taken over
+    private VideoReplica claim(String videoId, Organization target) {
+        String id = videoId + ":" + target.name();
+        LocalDateTime staleBefore = LocalDateTime.now().minusMinutes(replicationConfig.getClaimStaleMinutes());
+        try {
+            return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(id).orOperator(
+                    Criteria.where("status").ne("TRANSFERRING"),
+                    Criteria.where("updatedAt").lt(staleBefore)
+                )),
+                new Update()
+                    .set("status", "TRANSFERRING")
+                    .setOnInsert("videoId", videoId)
+                    .setOnInsert("targetOrganization", target.name())
+                    .setOnInsert("createdAt", LocalDateTime.now())
+                    .set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                VideoReplica.class
+            );
+        } catch (DuplicateKeyException e) {
+            // The replica exists and is claimed by a live transfer, so the upsert tried to insert a twin
+            return null;
+        }
+    }
+
+    private void refreshClaim(String replicaId) {
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(replicaId).and("status").is("TRANSFERRING")),
+            new Update().set("updatedAt", LocalDateTime.now()),
+            VideoReplica.class
+        );
+    }
+
+    private void record(String replicaId, ReplicationManifest.Entry entry) {
+        VideoReplica.ReplicatedObject object = new VideoReplica.ReplicatedObject();
+        object.setObjectName(entry.getObjectName());
+        object.setSize(entry.getSize());
+        object.setChecksum(entry.getChecksum());
+        object.setReplicatedAt(LocalDateTime.now());
+        Query query = Query.query(Criteria.where("_id").is(replicaId));
+        // A re-encoded object replaces its old entry; each write also keeps the claim fresh
+        mongoTemplate.updateFirst(query,
+            new Update().pull("objects", new Document("objectName", entry.getObjectName())),
+            VideoReplica.class);
+        mongoTemplate.updateFirst(query,
+            new Update().push("objects", object).set("updatedAt", LocalDateTime.now()),
+            VideoReplica.class);
+    }
+
+    private void setStatus(String replicaId, String status, String errorMessage) {
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(replicaId)),
+            new Update().set("status", status).set("errorMessage", errorMessage).set("updatedAt", LocalDateTime.now()),
+            VideoReplica.class
+        );
+    }
+
+    private ReplicationManifest.Entry statEntry(String objectName) throws Exception {
+        StatObjectResponse stat = minioClient.statObject(
+            StatObjectArgs.builder()
+                .bucket(videoProcessingConfig.getTempDir())
+                .object(objectName)
+                .build()
+        );
+        ReplicationManifest.Entry entry = new ReplicationManifest.Entry();
+        entry.setObjectName(objectName);
+        entry.setSize(stat.size());
+        entry.setContentType(stat.contentType());
+        return entry;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        videoExecutor.shutdownNow();
+    }
+}
@@ -1,7 +1,14 @@
 package com.video.transcoding.service;
 
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
 import com.video.transcoding.config.ShareConfig;
 import com.video.transcoding.config.VideoProcessingConfig;
+import com.video.transcoding.dto.BulkShareRequest;
+import com.video.transcoding.dto.BulkShareResult;
+import com.video.transcoding.dto.ShareBatchSyncRequest;
+import com.video.transcoding.dto.SharePage;
 import com.video.transcoding.dto.ShareSyncRequest;
 import com.video.transcoding.dto.VideoSyncRequest;
 import com.video.transcoding.model.Organization;
@@ -10,22 +17,35 @@ import com.video.transcoding.model.VideoShare;
 import com.video.transcoding.repository.VideoRepository;
 import com.video.transcoding.repository.VideoShareRepository;
 import io.minio.*;
-import io.minio.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.MediaType;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClient.Builder;
-import org.springframework.web.reactive.function.client.WebClient.MultipartBodyBuilder;
 import reactor.core.publisher.Mono;
 
-import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -34,39 +54,54 @@ import java.util.stream.Collectors;
 public class VideoShareService {
     private final VideoRepository videoRepository;
     private final VideoShareRepository videoShareRepository;
+    private final MongoTemplate mongoTemplate;
     private final MinioClient minioClient;
     private final ShareConfig shareConfig;
     private final VideoProcessingConfig videoProcessingConfig;
     private final WebClient webClient;
-    private final MinioClient minioClient;
     private final Organization currentOrg;
+    private final ReplicationQueueService replicationQueueService;
+    private final ShareBatchSyncService shareBatchSyncService;
     private final ExecutorService executorService = Executors.newFixedThreadPool(5);
 
+    private static final int DUPLICATE_KEY = 11000;
+
     @Value("${minio.bucket}")
     private String bucketName;
 
-    public VideoShare shareVideo(String videoId, String sharedWithUsername, String sharedWithIp, String sharedWithOrganization) {
+    public VideoShare shareVideo(String videoId, String userId, String sharedWithUsername, String sharedWithIp) {
         Video video = videoRepository.findById(videoId)
                 .orElseThrow(() -> new IllegalArgumentException("Video not found"));
+        if (!video.getUserId().equals(userId)) {
+            throw new IllegalArgumentException("You don't have permission to share this video");
+        }
+        // The unique index on active shares would reject a second one anyway
+        if (videoShareRepository.existsByVideoIdAndSharedWithUsernameAndIsActiveTrue(videoId, sharedWithUsername)) {
+            throw new IllegalArgumentException("Video is already shared with " + sharedWithUsername);
+        }
+        Organization organization = Organization.fromIp(sharedWithIp);
 
         VideoShare share = new VideoShare();
         share.setVideoId(videoId);
         share.setSharedByUserId(video.getUserId());
         share.setSharedWithUsername(sharedWithUsername);
         share.setSharedWithIp(sharedWithIp);
-        share.setSharedWithOrganization(sharedWithOrganization);
+        share.setSharedWithOrganization(organization);
+        share.setSameOrganization(organization == currentOrg);
         share.setCreatedAt(LocalDateTime.now());
         share.setExpiresAt(LocalDateTime.now().plusDays(30)); // 30 days expiry
+        share.setActive(true);
 
         VideoShare savedShare = videoShareRepository.save(share);
         
         // Sync with target organization
-        syncWithTargetOrganization(savedShare, video);
+        if (organization != currentOrg) {
+            syncWithTargetOrganization(savedShare, video);
+        }
         
         return savedShare;
     }
 
-    private void syncWithTargetOrganization(VideoShare share, Video video) {
     private void syncWithTargetOrganization(VideoShare share, Video video) {
         String targetEndpoint = shareConfig.getEndpoint(share.getSharedWithOrganization());
         if (targetEndpoint == null) {
@@ -80,17 +115,43 @@ public class VideoShareService {
         request.setSharedByUserId(share.getSharedByUserId());
         request.setSharedWithUsername(share.getSharedWithUsername());
         request.setSharedWithIp(share.getSharedWithIp());
-        request.setSourceOrganization(currentOrg.getName());
+        request.setSourceOrganization(currentOrg.name());
         request.setCreatedAt(share.getCreatedAt());
         request.setExpiresAt(share.getExpiresAt());
         
         // Add video qualities information
-        request.setQualities(video.getQualities().stream()
+        request.setQualities(syncQualities(video));
+
+        // Send sync request
+        webClient.post()
+                .uri(targetEndpoint)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(Void.class)
+                .doOnSuccess(v -> {
+                    log.info("Successfully synced share with organization: {}", share.getSharedWithOrganization());
+                    // After successful sync, transfer video files
+                    transferVideoFiles(video, share.getSharedWithOrganization());
+                })
+                .doOnError(e -> log.error("Error syncing share with organization: {}", share.getSharedWithOrganization(), e))
+                .subscribe();
+    }
+
+    private List<VideoSyncRequest.VideoQuality> syncQualities(Video video) {
+        return video.getQualities().stream()
                 .map(quality -> {
                     VideoSyncRequest.VideoQuality syncQuality = new VideoSyncRequest.VideoQuality();
                     syncQuality.setName(quality.getName());
                     syncQuality.setObjectName(quality.getObjectName());
                     syncQuality.setContentType("video/mp4");
+                    if (quality.getManifest() != null) {
+                        // Recorded at encode time: no storage round trip per quality
+                        syncQuality.setSize(quality.getManifest().getSize());
+                        syncQuality.setManifest(quality.getManifest());
+                        return syncQuality;
+                    }
+                    // Encoded before manifests existed
                     try {
                         // Get object size from MinIO
                         StatObjectResponse stat = minioClient.statObject(
@@ -105,60 +166,212 @@ public class VideoShareService {
                     }
                     return syncQuality;
                 })
-                .collect(Collectors.toList()));
+                .collect(Collectors.toList());
+    }
 
-        // Send sync request
-        webClient.post()
-                .uri(targetEndpoint)
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(request)
-                .retrieve()
-                .bodyToMono(Void.class)
-                .doOnSuccess(v -> {
-                    log.info("Successfully synced share with organization: {}", share.getSharedWithOrganization());
-                    // After successful sync, transfer video files
-                    transferVideoFiles(video, share.getSharedWithOrganization());
-                })
-                .doOnError(e -> log.error("Error syncing share with organization: {}", share.getSharedWithOrganization(), e))
-                .subscribe();
+    // Shares every video with every recipient: one read of the videos, one of the existing shares, one bulk insert,
+    // then one sync request per other organization instead of a round-trip chain per recipient
+    public BulkShareResult shareVideos(BulkShareRequest request, String userId) {
+        if (request.getVideoIds().isEmpty() || request.getRecipients().isEmpty()) {
+            throw new IllegalArgumentException("At least one video and one recipient are required");
+        }
+        if ((long) request.getVideoIds().size() * request.getRecipients().size() > shareConfig.getBulkMaxShares()) {
+            throw new IllegalArgumentException("At most " + shareConfig.getBulkMaxShares() + " shares per request");
+        }
+
+        Map<String, Video> videos = new LinkedHashMap<>();
+        for (Video video : videoRepository.findAllById(new HashSet<>(request.getVideoIds()))) {
+            if (!video.getUserId().equals(userId)) {
+                throw new IllegalArgumentException("You don't have permission to share video: " + video.getId());
+            }
+            videos.put(video.getId(), video);
+        }
+        for (String videoId : request.getVideoIds()) {
+            if (!videos.containsKey(videoId)) {
+                throw new IllegalArgumentException("Video not found: " + videoId);
+            }
+        }
+
+        // Recipients listed twice collapse into one; fromIp rejects addresses outside the known organizations
+        Map<String, BulkShareRequest.Recipient> recipients = new LinkedHashMap<>();
+        Map<String, Organization> organizations = new LinkedHashMap<>();
+        for (BulkShareRequest.Recipient recipient : request.getRecipients()) {
+            if (recipient.getUsername() == null || recipient.getUsername().isEmpty()) {
+                throw new IllegalArgumentException("Recipient username is required");
+            }
+            organizations.put(recipient.getUsername(), Organization.fromIp(recipient.getIp()));
+            recipients.put(recipient.getUsername(), recipient);
+        }
+
+        // One unordered bulk upsert keyed by (video, recipient, active): pairs that already have an active share are
+        // left untouched, and the unique index on active shares stops a concurrent request from adding a twin
+        LocalDateTime now = LocalDateTime.now();
+        List<VideoShare> candidates = new ArrayList<>();
+        BulkOperations upserts = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VideoShare.class);
+        for (Video video : videos.values()) {
+            for (BulkShareRequest.Recipient recipient : recipients.values()) {
+                Organization organization = organizations.get(recipient.getUsername());
+                VideoShare share = new VideoShare();
+                share.setVideoId(video.getId());
+                share.setSharedByUserId(video.getUserId());
+                share.setSharedWithUsername(recipient.getUsername());
+                share.setSharedWithIp(recipient.getIp());
+                share.setSharedWithOrganization(organization);
+                share.setSameOrganization(organization == currentOrg);
+                share.setCreatedAt(now);
+                share.setExpiresAt(now.plusDays(30)); // 30 days expiry
+                share.setActive(true);
+                candidates.add(share);
+                upserts.upsert(
+                    Query.query(Criteria.where("videoId").is(share.getVideoId())
+                        .and("sharedWithUsername").is(share.getSharedWithUsername())
+                        .and("isActive").is(true)),
+                    new Update()
+                        .setOnInsert("sharedByUserId", share.getSharedByUserId())
+                        .setOnInsert("sharedWithIp", share.getSharedWithIp())
+                        .setOnInsert("sharedWithOrganization", share.getSharedWithOrganization())
+                        .setOnInsert("isSameOrganization", share.isSameOrganization())
+                        .setOnInsert("createdAt", share.getCreatedAt())
+                        .setOnInsert("expiresAt", share.getExpiresAt()));
+            }
+        }
+        BulkWriteResult written;
+        try {
+            written = upserts.execute();
+        } catch (BulkOperationException e) {
+            // Duplicate key: another request created that share first, so it counts as already shared
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    throw e;
+                }
+            }
+            written = e.getResult();
+        }
+        // Only pairs that were inserted come back as upserts, with the generated id
+        List<VideoShare> shares = new ArrayList<>();
+        written.getUpserts().stream()
+            .sorted(Comparator.comparingInt(BulkWriteUpsert::getIndex))
+            .forEach(upsert -> {
+                VideoShare share = candidates.get(upsert.getIndex());
+                share.setId(upsert.getId().asObjectId().getValue().toHexString());
+                shares.add(share);
+            });
+
+        Map<Organization, List<VideoShare>> byOrganization = new EnumMap<>(Organization.class);
+        for (VideoShare share : shares) {
+            byOrganization.computeIfAbsent(share.getSharedWithOrganization(), org -> new ArrayList<>()).add(share);
+        }
+        BulkShareResult result = new BulkShareResult();
+        result.setShared(shares.size());
+        result.setAlreadyShared(videos.size() * recipients.size() - shares.size());
+        byOrganization.forEach((org, orgShares) -> result.getSharesByOrganization().put(org.name(), orgShares.size()));
+
+        byOrganization.forEach((org, orgShares) -> {
+            if (org != currentOrg) {
+                // Saved before the first attempt, so a target that is down gets the batch once it is back
+                String batchId = shareBatchSyncService.save(org, toShareBatchSyncRequest(orgShares, videos));
+                executorService.submit(() -> shareBatchSyncService.deliver(batchId));
+            }
+        });
+        log.info("User {} shared {} videos with {} recipients: {} new shares", userId, videos.size(), recipients.size(), shares.size());
+        return result;
     }
 
-    private void transferVideoFiles(Video video, String targetOrganization) {
-        String targetEndpoint = shareConfig.getEndpoint(targetOrganization);
-        if (targetEndpoint == null) {
-            log.error("No endpoint configured for organization: {}", targetOrganization);
-            return;
+    private ShareBatchSyncRequest toShareBatchSyncRequest(List<VideoShare> shares, Map<String, Video> videos) {
+        ShareBatchSyncRequest request = new ShareBatchSyncRequest();
+        request.setSourceOrganization(currentOrg.name());
+        Set<String> described = new HashSet<>();
+        for (VideoShare share : shares) {
+            // Each video's metadata goes once, however many recipients it has
+            if (described.add(share.getVideoId())) {
+                Video video = videos.get(share.getVideoId());
+                ShareBatchSyncRequest.SyncedVideo syncedVideo = new ShareBatchSyncRequest.SyncedVideo();
+                syncedVideo.setVideoId(video.getId());
+                syncedVideo.setSharedByUserId(video.getUserId());
+                syncedVideo.setCreatedAt(video.getCreatedAt());
+                syncedVideo.setQualities(syncQualities(video));
+                syncedVideo.setHls(video.getHls());
+                request.getVideos().add(syncedVideo);
+            }
+            ShareBatchSyncRequest.SyncedShare syncedShare = new ShareBatchSyncRequest.SyncedShare();
+            syncedShare.setShareId(share.getId());
+            syncedShare.setVideoId(share.getVideoId());
+            syncedShare.setSharedByUserId(share.getSharedByUserId());
+            syncedShare.setSharedWithUsername(share.getSharedWithUsername());
+            syncedShare.setSharedWithIp(share.getSharedWithIp());
+            syncedShare.setCreatedAt(share.getCreatedAt());
+            syncedShare.setExpiresAt(share.getExpiresAt());
+            request.getShares().add(syncedShare);
         }
 
-        // Transfer each video quality
-        for (Video.VideoQuality quality : video.getQualities()) {
+        return request;
+    }
+
+    // Receiving end of ShareBatchSyncService: one bulk write for the videos, one for the shares
+    public void receiveShareBatch(ShareBatchSyncRequest request) {
+        Organization source = Organization.valueOf(request.getSourceOrganization());
+        LocalDateTime now = LocalDateTime.now();
+
+        if (!request.getVideos().isEmpty()) {
+            BulkOperations videos = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Video.class);
+            for (ShareBatchSyncRequest.SyncedVideo syncedVideo : request.getVideos()) {
+                List<Video.VideoQuality> qualities = new ArrayList<>();
+                for (VideoSyncRequest.VideoQuality quality : syncedVideo.getQualities()) {
+                    Video.VideoQuality videoQuality = new Video.VideoQuality();
+                    videoQuality.setName(quality.getName());
+                    videoQuality.setObjectName(quality.getObjectName());
+                    videoQuality.setManifest(quality.getManifest());
+                    if (quality.getManifest() != null) {
+                        videoQuality.setHeight(quality.getManifest().getHeight());
+                    }
+                    qualities.add(videoQuality);
+                }
+                videos.upsert(Query.query(Criteria.where("_id").is(syncedVideo.getVideoId())),
+                    new Update()
+                        .setOnInsert("userId", syncedVideo.getSharedByUserId())
+                        .setOnInsert("createdAt", syncedVideo.getCreatedAt())
+                        .set("qualities", qualities)
+                        .set("hls", syncedVideo.getHls())
+                        .set("updatedAt", now));
+            }
+            videos.execute();
+        }
+
+        if (!request.getShares().isEmpty()) {
+            BulkOperations shares = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VideoShare.class);
+            for (ShareBatchSyncRequest.SyncedShare syncedShare : request.getShares()) {
+                VideoShare share = new VideoShare();
+                share.setId(syncedShare.getShareId());
+                share.setVideoId(syncedShare.getVideoId());
+                share.setSharedByUserId(syncedShare.getSharedByUserId());
+                share.setSharedWithUsername(syncedShare.getSharedWithUsername());
+                share.setSharedWithIp(syncedShare.getSharedWithIp());
+                share.setSharedWithOrganization(source);
+                share.setSameOrganization(false);
+                share.setCreatedAt(syncedShare.getCreatedAt());
+                share.setExpiresAt(syncedShare.getExpiresAt());
+                share.setActive(true);
+                shares.replaceOne(Query.query(Criteria.where("_id").is(share.getId())), share,
+                    FindAndReplaceOptions.options().upsert());
+            }
             try {
-                // Get object from source MinIO
-                InputStream inputStream = minioClient.getObject(
-                    GetObjectArgs.builder()
-                        .bucket(bucketName)
-                        .object(quality.getObjectName())
-                        .build()
-                );
-
-                // Upload to target MinIO
-                webClient.post()
-                    .uri(targetEndpoint + "/upload")
-                    .contentType(MediaType.MULTIPART_FORM_DATA)
-                    .bodyValue(new MultipartBodyBuilder()
-                        .part("file", inputStream)
-                        .part("objectName", quality.getObjectName())
-                        .build())
-                    .retrieve()
-                    .bodyToMono(Void.class)
-                    .doOnSuccess(v -> log.info("Successfully transferred video file: {}", quality.getObjectName()))
-                    .doOnError(e -> log.error("Error transferring video file: {}", quality.getObjectName(), e))
-                    .subscribe();
-
-            } catch (Exception e) {
-                log.error("Error transferring video file {}: {}", quality.getObjectName(), e.getMessage());
+                shares.execute();
+            } catch (BulkOperationException e) {
+                // The recipient already has an active share of that video here; the rest of the batch was written
+                for (BulkWriteError error : e.getErrors()) {
+                    if (error.getCode() != DUPLICATE_KEY) {
+                        throw e;
+                    }
+                }
             }
         }
+        log.info("Received {} shares of {} videos from {}", request.getShares().size(), request.getVideos().size(), source);
+    }
+
+    // Bytes cross the link once per (video, organization); later shares only send the VideoShare record above.
+    // Someone is waiting for this share, so it goes ahead of background replication on that link
+    private void transferVideoFiles(Video video, Organization targetOrganization) {
+        replicationQueueService.enqueue(video.getId(), targetOrganization, ReplicationQueueService.INTERACTIVE);
     }
 
     public List<VideoShare> getSharedVideos(String userId) {
@@ -169,6 +382,14 @@ public class VideoShareService {
         return videoShareRepository.findBySharedWithUsernameAndSharedWithIp(username, ip);
     }
 
+    public SharePage getSharedWithMe(String username, String cursor, int limit) {
+        return videoShareRepository.findActiveSharedWith(username, cursor, limit);
+    }
+
+    public SharePage getVideoShares(String videoId, String cursor, int limit) {
+        return videoShareRepository.findActiveByVideoId(videoId, cursor, limit);
+    }
+
     public void revokeShare(String shareId, String userId) {
         VideoShare share = videoShareRepository.findById(shareId)
             .orElseThrow(() -> new RuntimeException("Share not found"));
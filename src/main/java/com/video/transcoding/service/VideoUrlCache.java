@@ -0,0 +1,58 @@
+package com.video.transcoding.service;
+
+import com.video.transcoding.config.VideoCacheConfig;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+@Service
+public class VideoUrlCache {
+    // Rough heap cost of a String: header plus two bytes per char
+    private static final int STRING_OVERHEAD = 40;
+
+    private final BoundedCache<String, Map<String, String>> objectNames;
+    private final BoundedCache<String, String> signedUrls;
+
+    public VideoUrlCache(VideoCacheConfig videoCacheConfig) {
+        VideoCacheConfig.Limits metadata = videoCacheConfig.getMetadata();
+        this.objectNames = new BoundedCache<>(
+            metadata.getMaxEntries(), metadata.getMaxBytes(),
+            Duration.ofMinutes(metadata.getTtlMinutes()).toMillis(),
+            (videoId, qualities) -> {
+                long weight = sizeOf(videoId);
+                for (Map.Entry<String, String> quality : qualities.entrySet()) {
+                    weight += sizeOf(quality.getKey()) + sizeOf(quality.getValue());
+                }
+                return weight;
+            }
+        );
+
+        VideoCacheConfig.Limits urls = videoCacheConfig.getSignedUrls();
+        // A cached URL must still have days of validity left when it is handed out
+        long ttlMillis = Math.min(Duration.ofMinutes(urls.getTtlMinutes()).toMillis(),
+            VideoProcessingService.URL_EXPIRY.toMillis() / 2);
+        this.signedUrls = new BoundedCache<>(
+            urls.getMaxEntries(), urls.getMaxBytes(), ttlMillis,
+            (key, url) -> sizeOf(key) + sizeOf(url)
+        );
+    }
+
+    public Map<String, String> objectNames(String videoId, Callable<Map<String, String>> loader) throws Exception {
+        return objectNames.get(videoId, loader);
+    }
+
+    public String signedUrl(String videoId, String quality, Callable<String> signer) throws Exception {
+        return signedUrls.get(videoId + "/" + quality, signer);
+    }
+
+    public void invalidate(String videoId) {
+        objectNames.invalidateIf(videoId::equals);
+        signedUrls.invalidateIf(key -> key.startsWith(videoId + "/"));
+    }
+
+    private static long sizeOf(String value) {
+        return STRING_OVERHEAD + 2L * value.length();
+    }
+}
@@ -3,24 +3,112 @@ package com.video.transcoding.service;
 import com.video.transcoding.dto.VideoProgressMessage;
 import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 @Service
 @RequiredArgsConstructor
 public class WebSocketService {
+    // Statuses reported many times per video; they are coalesced and flushed on an interval
+    private static final Set<String> COALESCED_STATUSES = Set.of("UPLOADING", "TRANSCODING");
+    // Nothing coalesced may follow these; late progress from a still-running listener is dropped
+    private static final Set<String> FINAL_STATUSES = Set.of("TRANSCODING_COMPLETED", "ERROR");
+    // A video that stops reporting without a final status is forgotten after this
+    private static final long IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
     private final SimpMessagingTemplate messagingTemplate;
+    private final Map<String, VideoProgressState> states = new ConcurrentHashMap<>();
 
     public void sendProgress(String userId, String videoId, String status, int progress) {
+        sendProgress(userId, videoId, status, null, progress, null);
+    }
+
+    // quality is null for the video as a whole
+    public void sendProgress(String userId, String videoId, String status, String quality, int progress, Long etaSeconds) {
         VideoProgressMessage message = new VideoProgressMessage();
         message.setVideoId(videoId);
         message.setStatus(status);
+        message.setQuality(quality);
         message.setProgress(progress);
-        message.setTimestamp(java.time.LocalDateTime.now());
-        
+        message.setEtaSeconds(etaSeconds);
+        message.setTimestamp(LocalDateTime.now());
+
+        VideoProgressState state = states.computeIfAbsent(videoId, id -> new VideoProgressState(userId));
+        if (!COALESCED_STATUSES.contains(status)) {
+            // Phase changes go out at once and supersede anything still queued for the video. Sent under the
+            // state's lock, so a flush in progress finishes first and nothing older can arrive after them
+            synchronized (state) {
+                state.lastUpdated = System.currentTimeMillis();
+                state.pending.clear();
+                state.lastSent.clear();
+                state.closed = FINAL_STATUSES.contains(status);
+                send(userId, message);
+            }
+            return;
+        }
+
+        String key = status + ":" + (quality == null ? "" : quality);
+        synchronized (state) {
+            if (state.closed) {
+                return;
+            }
+            state.lastUpdated = System.currentTimeMillis();
+            Integer last = state.lastSent.get(key);
+            if (last != null && last == progress) {
+                state.pending.remove(key);
+                return;
+            }
+            // Only the newest update per stream survives until the next flush
+            state.pending.put(key, message);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${video.processing.progress.interval-ms:500}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, VideoProgressState> entry : states.entrySet()) {
+            VideoProgressState state = entry.getValue();
+            synchronized (state) {
+                if (state.pending.isEmpty()) {
+                    // Closed states linger until idle too, so late progress still finds them and is dropped
+                    if (now - state.lastUpdated > IDLE_TIMEOUT_MILLIS) {
+                        states.remove(entry.getKey(), state);
+                    }
+                    continue;
+                }
+                for (Map.Entry<String, VideoProgressMessage> pending : state.pending.entrySet()) {
+                    state.lastSent.put(pending.getKey(), pending.getValue().getProgress());
+                    send(state.userId, pending.getValue());
+                }
+                state.pending.clear();
+            }
+        }
+    }
+
+    private void send(String userId, VideoProgressMessage message) {
         messagingTemplate.convertAndSendToUser(
             userId,
             "/topic/video-progress",
             message
         );
     }
-} 
\ No newline at end of file
+
+    private static class VideoProgressState {
+        private final String userId;
+        private final Map<String, VideoProgressMessage> pending = new LinkedHashMap<>();
+        private final Map<String, Integer> lastSent = new HashMap<>();
+        private long lastUpdated = System.currentTimeMillis();
+        private boolean closed;
+
+        private VideoProgressState(String userId) {
+            this.userId = userId;
+        }
+    }
+}